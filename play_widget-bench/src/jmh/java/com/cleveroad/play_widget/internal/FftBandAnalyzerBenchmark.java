@@ -0,0 +1,87 @@
+package com.cleveroad.play_widget.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis of one captured FFT frame, as done by VisualizerShadowChanger for every capture.
+ * {@link #analyzeLog10()} calculates the same bands with logarithm per band instead of dB table for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FftBandAnalyzerBenchmark {
+
+    private static final int CAPTURE_SIZE = 1024;
+    private static final int SAMPLING_RATE = 44100000;
+    private static final int FRAMES_COUNT = 16;
+
+    @Param({"3", "16", "64"})
+    int bandsCount;
+
+    private FftBandAnalyzer analyzer;
+    private byte[][] frames;
+    private int frame;
+
+    private int[] startBins;
+    private int[] endBins;
+    private float[] levels;
+
+    @Setup
+    public void setup() {
+        analyzer = new FftBandAnalyzer(bandsCount, 3);
+        Random random = new Random(42);
+        frames = new byte[FRAMES_COUNT][CAPTURE_SIZE];
+        for (byte[] frame : frames) {
+            random.nextBytes(frame);
+        }
+        startBins = new int[bandsCount];
+        endBins = new int[bandsCount];
+        levels = new float[bandsCount];
+        int maxBin = CAPTURE_SIZE / 2 - 1;
+        float binWidth = SAMPLING_RATE / 1000.0f / CAPTURE_SIZE;
+        for (int i = 0; i < bandsCount; i++) {
+            float from = (float) (60 * Math.pow(100, (float) i / bandsCount));
+            float to = (float) (60 * Math.pow(100, (float) (i + 1) / bandsCount));
+            startBins[i] = Math.min(maxBin, Math.max(1, Math.round(from / binWidth)));
+            endBins[i] = Math.max(startBins[i] + 1, Math.min(maxBin + 1, Math.round(to / binWidth)));
+        }
+    }
+
+    private byte[] nextFrame() {
+        frame = (frame + 1) & (FRAMES_COUNT - 1);
+        return frames[frame];
+    }
+
+    @Benchmark
+    public float analyze() {
+        analyzer.analyze(nextFrame(), CAPTURE_SIZE, SAMPLING_RATE);
+        return analyzer.getGroupLevel(0);
+    }
+
+    @Benchmark
+    public float analyzeLog10() {
+        byte[] fft = nextFrame();
+        for (int i = 0; i < bandsCount; i++) {
+            int magnitudeSquareSum = 0;
+            for (int bin = startBins[i]; bin < endBins[i]; bin++) {
+                int real = fft[2 * bin];
+                int imag = fft[2 * bin + 1];
+                magnitudeSquareSum += real * real + imag * imag;
+            }
+            int magnitudeSquare = magnitudeSquareSum / (endBins[i] - startBins[i]);
+            float dbs = magnitudeSquare == 0 ? 0 : (float) (10 * Math.log10(magnitudeSquare));
+            levels[i] = levels[i] * 0.55f + Math.min(1.0f, dbs / 45) * 0.45f;
+        }
+        return levels[0];
+    }
+}
@@ -0,0 +1,66 @@
+package com.cleveroad.play_widget.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Angle math of ProgressLineView: touch handling, quantization of progress and rebuilding of curve points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProgressGeometryBenchmark {
+
+    private static final int POINTS_COUNT = 1024;
+
+    private float[] xOffsets;
+    private float[] yOffsets;
+    private float[] progresses;
+    private int point;
+
+    private final float[] xs = new float[ProgressGeometry.PROGRESS_ANGLE_STEPS + 1];
+    private final float[] ys = new float[ProgressGeometry.PROGRESS_ANGLE_STEPS + 1];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        xOffsets = new float[POINTS_COUNT];
+        yOffsets = new float[POINTS_COUNT];
+        progresses = new float[POINTS_COUNT];
+        for (int i = 0; i < POINTS_COUNT; i++) {
+            xOffsets[i] = random.nextFloat() * 1000 - 500;
+            yOffsets[i] = random.nextFloat() * 1000 - 500;
+            progresses[i] = random.nextFloat();
+        }
+    }
+
+    private int nextPoint() {
+        point = (point + 1) & (POINTS_COUNT - 1);
+        return point;
+    }
+
+    @Benchmark
+    public float touchProgress() {
+        int i = nextPoint();
+        return ProgressGeometry.getProgress(ProgressGeometry.getTouchAngle(xOffsets[i], yOffsets[i]));
+    }
+
+    @Benchmark
+    public int angleIndex() {
+        return ProgressGeometry.getAngleIndex(progresses[nextPoint()]);
+    }
+
+    @Benchmark
+    public float buildPoints() {
+        ProgressGeometry.buildPoints(480, 520, xs, ys);
+        return xs[ProgressGeometry.PROGRESS_ANGLE_STEPS / 2];
+    }
+}
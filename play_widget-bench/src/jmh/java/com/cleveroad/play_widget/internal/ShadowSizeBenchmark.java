@@ -0,0 +1,43 @@
+package com.cleveroad.play_widget.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quantization of shadow size done by ShadowDrawable on every shadow size multiplier change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ShadowSizeBenchmark {
+
+    private static final int MULTIPLIERS_COUNT = 1024;
+    private static final float RAW_SHADOW_SIZE = 61.3f;
+
+    private float[] multipliers;
+    private int multiplier;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        multipliers = new float[MULTIPLIERS_COUNT];
+        for (int i = 0; i < MULTIPLIERS_COUNT; i++) {
+            multipliers[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public int shadowSize() {
+        multiplier = (multiplier + 1) & (MULTIPLIERS_COUNT - 1);
+        int rawShadowSize = Utils.toEven(RAW_SHADOW_SIZE);
+        return Utils.toEven(rawShadowSize * multipliers[multiplier]);
+    }
+}
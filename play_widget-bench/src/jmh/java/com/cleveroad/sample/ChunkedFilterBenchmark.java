@@ -0,0 +1,77 @@
+package com.cleveroad.sample;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential against chunked parallel matching of tracks, to find size where parallel mode pays off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChunkedFilterBenchmark {
+
+    private static final String[] WORDS = {
+            "love", "night", "dance", "blue", "heart", "summer", "fire", "dream", "road", "light",
+            "rain", "city", "moon", "gold", "wild", "river", "stone", "sky", "home", "time"
+    };
+    private static final String QUERY = "love";
+
+    @Param({"500", "1000", "2000", "5000", "10000", "50000"})
+    int tracksCount;
+
+    private ChunkedFilter chunkedFilter;
+    private ChunkedFilter.Matcher matcher;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        final String[] titles = new String[tracksCount];
+        final String[] albums = new String[tracksCount];
+        final String[] artists = new String[tracksCount];
+        for (int i = 0; i < tracksCount; i++) {
+            titles[i] = phrase(random, 3) + " " + i;
+            albums[i] = phrase(random, 2);
+            artists[i] = phrase(random, 2);
+        }
+        chunkedFilter = ChunkedFilter.getInstance();
+        matcher = new ChunkedFilter.Matcher() {
+            @Override
+            boolean matches(int position) {
+                return TrackMatcher.matches(QUERY, titles[position], albums[position], artists[position]);
+            }
+        };
+    }
+
+    private static String phrase(Random random, int maxWords) {
+        StringBuilder builder = new StringBuilder();
+        int words = 1 + random.nextInt(maxWords);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            builder.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public int[] sequential() {
+        return ChunkedFilter.filterChunk(0, tracksCount, matcher);
+    }
+
+    @Benchmark
+    public int[] parallel() {
+        return chunkedFilter.filter(tracksCount, matcher);
+    }
+}
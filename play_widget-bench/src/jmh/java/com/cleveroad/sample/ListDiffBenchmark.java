@@ -0,0 +1,66 @@
+package com.cleveroad.sample;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Difference between all tracks and tracks matched by query, as computed on every filtering,
+ * and between lists with few moved items, which goes through Myers' algorithm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ListDiffBenchmark {
+
+    private static final int MAX_EDITS = 500;
+
+    @Param({"1000", "10000", "50000"})
+    int tracksCount;
+
+    private int[] allKeys;
+    private int[] matchedKeys;
+    private int[] movedKeys;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        allKeys = new int[tracksCount];
+        int[] matched = new int[tracksCount];
+        int matchedCount = 0;
+        for (int i = 0; i < tracksCount; i++) {
+            allKeys[i] = i;
+            if (random.nextInt(10) == 0) {
+                matched[matchedCount++] = i;
+            }
+        }
+        matchedKeys = new int[matchedCount];
+        System.arraycopy(matched, 0, matchedKeys, 0, matchedCount);
+        movedKeys = allKeys.clone();
+        for (int i = 0; i < 20; i++) {
+            int from = random.nextInt(tracksCount);
+            int to = random.nextInt(tracksCount);
+            int key = movedKeys[from];
+            movedKeys[from] = movedKeys[to];
+            movedKeys[to] = key;
+        }
+    }
+
+    @Benchmark
+    public ListDiff filtered() {
+        return ListDiff.compute(allKeys, matchedKeys, MAX_EDITS);
+    }
+
+    @Benchmark
+    public ListDiff moved() {
+        return ListDiff.compute(allKeys, movedKeys, MAX_EDITS);
+    }
+}
@@ -0,0 +1,84 @@
+package com.cleveroad.sample;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching loop of MusicFilter.performFilteringImpl over synthetic library, linear and through {@link TrackIndex}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MusicFilterBenchmark {
+
+    private static final String[] WORDS = {
+            "love", "night", "dance", "blue", "heart", "summer", "fire", "dream", "road", "light",
+            "rain", "city", "moon", "gold", "wild", "river", "stone", "sky", "home", "time"
+    };
+
+    @Param({"1000", "10000", "50000"})
+    int tracksCount;
+
+    @Param({"a", "love", "dream road", "zzz"})
+    String query;
+
+    private String[] titles;
+    private String[] albums;
+    private String[] artists;
+    private TrackIndex index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        titles = new String[tracksCount];
+        albums = new String[tracksCount];
+        artists = new String[tracksCount];
+        for (int i = 0; i < tracksCount; i++) {
+            titles[i] = phrase(random, 3) + " " + i;
+            albums[i] = phrase(random, 2);
+            artists[i] = phrase(random, 2);
+        }
+        index = new TrackIndex(titles, albums, artists);
+    }
+
+    private static String phrase(Random random, int maxWords) {
+        StringBuilder builder = new StringBuilder();
+        int words = 1 + random.nextInt(maxWords);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            builder.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public List<Integer> filter() {
+        String lowerQuery = query.trim().toLowerCase();
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < tracksCount; i++) {
+            if (TrackMatcher.matches(lowerQuery, titles[i], albums[i], artists[i])) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int[] indexedFilter() {
+        return index.search(query.trim().toLowerCase());
+    }
+}
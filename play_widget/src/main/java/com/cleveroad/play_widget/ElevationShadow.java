@@ -0,0 +1,83 @@
+package com.cleveroad.play_widget;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+
+import com.cleveroad.play_widget.internal.MorphOutline;
+
+/**
+ * Shadow of diffuser cast by framework from outline of diffuser view.<br/><br/>
+ * Shadow size is mapped to translation Z and shadow alpha to outline alpha. Both are properties of view's
+ * RenderNode, so changing them doesn't redraw view. Outline is inset by shadow size,
+ * so it's the same circle {@link ShadowDrawable} draws shadow around. Outline of medium diffuser also clips it
+ * and morphs with dismiss animation.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class ElevationShadow {
+
+    /**
+     * Elevation for one pixel of shadow size.
+     */
+    private static final float ELEVATION_PER_SHADOW_SIZE = 0.5f;
+
+    private final View mView;
+    private final MorphOutline mOutline;
+
+    /**
+     * @param view    diffuser view
+     * @param outline outline of diffuser view, it can be shared with clipping of view
+     */
+    ElevationShadow(@NonNull View view, @NonNull MorphOutline outline) {
+        mView = view;
+        mOutline = outline;
+    }
+
+    /**
+     * @param shadowSize shadow size in pixels
+     * @return max elevation used for shadow of this size
+     */
+    static float maxElevation(float shadowSize) {
+        return shadowSize * ELEVATION_PER_SHADOW_SIZE;
+    }
+
+    /**
+     * Start casting shadow.
+     *
+     * @param baseElevation elevation added to shadow elevation, it keeps diffusers in drawing order
+     */
+    void attach(float baseElevation) {
+        if (mView.getOutlineProvider() != mOutline) {
+            mView.setOutlineProvider(mOutline);
+        }
+        mView.setElevation(baseElevation);
+    }
+
+    /**
+     * Stop casting shadow and restore default outline.
+     */
+    void detach() {
+        mView.setOutlineProvider(ViewOutlineProvider.BACKGROUND);
+        mView.setElevation(0.0f);
+        mView.setTranslationZ(0.0f);
+    }
+
+    /**
+     * @param rawShadowSize full shadow size, outline is inset by it
+     * @param multiplier    part of full shadow size (0.0f - 1.0f)
+     */
+    void setShadowSize(float rawShadowSize, float multiplier) {
+        mOutline.setInset(rawShadowSize);
+        mView.setTranslationZ(maxElevation(rawShadowSize) * multiplier);
+    }
+
+    /**
+     * @param alpha shadow alpha (0 - 255)
+     */
+    void setAlpha(int alpha) {
+        // shadow is cast only by outline, so transparent diffuser with opaque outline has shadow only around circle
+        mOutline.setAlpha(alpha / 255.0f);
+    }
+}
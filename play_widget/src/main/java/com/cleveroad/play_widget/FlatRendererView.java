@@ -0,0 +1,141 @@
+package com.cleveroad.play_widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.cleveroad.play_widget.internal.DiffuserView;
+import com.cleveroad.play_widget.internal.ProgressLineView;
+import com.cleveroad.play_widget.internal.RoundRectImageView;
+
+/**
+ * View that draws image, diffusers with shadows and progress line of {@link PlayLayout} in one pass.<br/><br/>
+ * Component views are not attached to hierarchy in flat mode. They are laid out by {@link PlayLayout},
+ * keep their state and forward invalidation to this view. Their translation, scale and alpha
+ * are applied here without offscreen layers. Touches are forwarded to progress line.
+ */
+class FlatRendererView extends View {
+
+    private final RoundRectImageView mIvBackground;
+    private final View mBigDiffuserView;
+    private final ShadowDrawable mBigShadowDrawable;
+    private final DiffuserView mMediumDiffuserView;
+    private final ShadowDrawable mMediumShadowDrawable;
+    private final View mSmallDiffuserView;
+    private final ShadowDrawable mSmallShadowDrawable;
+    private final ProgressLineView mProgressLineView;
+
+    FlatRendererView(Context context,
+                     @NonNull RoundRectImageView ivBackground,
+                     @NonNull View bigDiffuserView, @NonNull ShadowDrawable bigShadowDrawable,
+                     @NonNull DiffuserView mediumDiffuserView, @NonNull ShadowDrawable mediumShadowDrawable,
+                     @NonNull View smallDiffuserView, @NonNull ShadowDrawable smallShadowDrawable,
+                     @NonNull ProgressLineView progressLineView) {
+        super(context);
+        mIvBackground = ivBackground;
+        mBigDiffuserView = bigDiffuserView;
+        mBigShadowDrawable = bigShadowDrawable;
+        mMediumDiffuserView = mediumDiffuserView;
+        mMediumShadowDrawable = mediumShadowDrawable;
+        mSmallDiffuserView = smallDiffuserView;
+        mSmallShadowDrawable = smallShadowDrawable;
+        mProgressLineView = progressLineView;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int size = Math.min(MeasureSpec.getSize(widthMeasureSpec), MeasureSpec.getSize(heightMeasureSpec));
+        setMeasuredDimension(size, size);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int saveCount = canvas.getSaveCount();
+        if (beginComponent(canvas, mIvBackground)) {
+            if (mIvBackground.getRenderMode() == RoundRectImageView.RENDER_MODE_MASK) {
+                //noinspection deprecation
+                canvas.saveLayer(0, 0, mIvBackground.getWidth(), mIvBackground.getHeight(), null, Canvas.ALL_SAVE_FLAG);
+            }
+            mIvBackground.drawImage(canvas);
+            // pops mask layer too, so diffusers aren't drawn with transformations of image
+            canvas.restoreToCount(saveCount);
+        }
+        drawShadow(canvas, mBigDiffuserView, mBigShadowDrawable);
+        if (beginComponent(canvas, mMediumDiffuserView)) {
+            drawComponentShadow(canvas, mMediumDiffuserView, mMediumShadowDrawable);
+            mMediumDiffuserView.drawDiffuser(canvas, mMediumDiffuserView.getAlpha());
+            canvas.restore();
+        }
+        drawShadow(canvas, mSmallDiffuserView, mSmallShadowDrawable);
+        if (beginComponent(canvas, mProgressLineView)) {
+            mProgressLineView.drawProgress(canvas, mProgressLineView.getAlpha());
+            canvas.restore();
+        }
+    }
+
+    private void drawShadow(Canvas canvas, View component, ShadowDrawable shadowDrawable) {
+        if (beginComponent(canvas, component)) {
+            drawComponentShadow(canvas, component, shadowDrawable);
+            canvas.restore();
+        }
+    }
+
+    private void drawComponentShadow(Canvas canvas, View component, ShadowDrawable shadowDrawable) {
+        shadowDrawable.setBounds(0, 0, component.getWidth(), component.getHeight());
+        shadowDrawable.draw(canvas, component.getAlpha());
+    }
+
+    /**
+     * Save canvas and apply position and transformations of component.
+     *
+     * @return false if component is invisible and canvas wasn't saved
+     */
+    private boolean beginComponent(Canvas canvas, View component) {
+        float scaleX = component.getScaleX();
+        float scaleY = component.getScaleY();
+        if (component.getVisibility() != VISIBLE || component.getAlpha() <= 0.0f || scaleX == 0.0f || scaleY == 0.0f) {
+            return false;
+        }
+        canvas.save();
+        canvas.translate(
+                component.getLeft() - getLeft() + component.getTranslationX(),
+                component.getTop() - getTop() + component.getTranslationY()
+        );
+        if (scaleX != 1.0f || scaleY != 1.0f) {
+            canvas.scale(scaleX, scaleY, component.getWidth() / 2.0f, component.getHeight() / 2.0f);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mProgressLineView.getVisibility() != VISIBLE) {
+            return super.onTouchEvent(event);
+        }
+        float offsetX = mProgressLineView.getLeft() - getLeft();
+        float offsetY = mProgressLineView.getTop() - getTop();
+        event.offsetLocation(-offsetX, -offsetY);
+        boolean handled = mProgressLineView.onTouchEvent(event);
+        event.offsetLocation(offsetX, offsetY);
+        return handled;
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return who == mBigShadowDrawable || who == mMediumShadowDrawable || who == mSmallShadowDrawable
+                || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        if (drawable == mBigShadowDrawable || drawable == mMediumShadowDrawable || drawable == mSmallShadowDrawable) {
+            // bounds of shadows are in coordinates of components
+            invalidate();
+            return;
+        }
+        super.invalidateDrawable(drawable);
+    }
+}
@@ -2,8 +2,7 @@ package com.cleveroad.play_widget;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
+import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.ColorStateList;
@@ -27,13 +26,17 @@ import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.AccelerateInterpolator;
 import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
 
 import com.cleveroad.play_widget.internal.DiffuserView;
+import com.cleveroad.play_widget.internal.MorphOutline;
 import com.cleveroad.play_widget.internal.ProgressLineView;
 import com.cleveroad.play_widget.internal.RoundRectImageView;
 import com.cleveroad.play_widget.internal.Utils;
@@ -45,7 +48,63 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
 
     public static final int DEFAULT_DURATION = 430;
     public static final float SMALL_SHADOW_OPACITY = 0.75f;
-    private static final int PROGRESS_LINE_ALPHA_ANIMATION_DURATION = 350;
+
+    /**
+     * Duration of shadows and progress line fading, after reveal morph and before dismiss morph.
+     */
+    private static final int SHADOWS_ANIMATION_DURATION = 350;
+
+    /**
+     * States of diffusers. Opening and closing can be reversed at any moment of the timeline.
+     */
+    private static final int STATE_CLOSED = 0;
+    private static final int STATE_OPENING = 1;
+    private static final int STATE_OPEN = 2;
+    private static final int STATE_CLOSING = 3;
+
+    private static final Interpolator TIMELINE_INTERPOLATOR = new LinearInterpolator();
+    private static final Interpolator DEFAULT_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+    private static final Interpolator MEDIUM_DIFFUSER_TRANSLATION_INTERPOLATOR = new DecelerateInterpolator(1.25f);
+    private static final Interpolator MEDIUM_DIFFUSER_REVEAL_ALPHA_INTERPOLATOR = new AccelerateInterpolator(2);
+    private static final Interpolator MEDIUM_DIFFUSER_DISMISS_ALPHA_INTERPOLATOR = new DecelerateInterpolator(2);
+    private static final Interpolator PLAY_BUTTON_INTERPOLATOR = new OvershootInterpolator(0.8f);
+
+    /**
+     * Image is clipped by round rect mask composited on every frame of animation.
+     */
+    public static final int IMAGE_RENDER_MODE_MASK = RoundRectImageView.RENDER_MODE_MASK;
+
+    /**
+     * Image is drawn through cached bitmap shader without offscreen compositing. Default mode.
+     */
+    public static final int IMAGE_RENDER_MODE_SHADER = RoundRectImageView.RENDER_MODE_SHADER;
+
+    /**
+     * Image is recorded once and clipped by outline of view, so morph only updates outline.
+     * Used only on API 21+ in {@link #RENDER_MODE_LAYERED}, otherwise image is drawn through shader.
+     */
+    public static final int IMAGE_RENDER_MODE_OUTLINE = RoundRectImageView.RENDER_MODE_OUTLINE;
+
+    /**
+     * Image, diffusers and progress line are separate views. Default mode.
+     */
+    public static final int RENDER_MODE_LAYERED = 0;
+
+    /**
+     * Image, diffusers with shadows and progress line are drawn by one view in a single pass.
+     */
+    public static final int RENDER_MODE_FLAT = 1;
+
+    /**
+     * Shadows of diffusers are drawn by drawables. Default mode.
+     */
+    public static final int SHADOW_MODE_DRAWABLE = 0;
+
+    /**
+     * Shadows of diffusers are cast by framework from elevation of diffusers, so shadow changes don't redraw views.
+     * Used only on API 21+ in {@link #RENDER_MODE_LAYERED}, otherwise shadows are drawn by drawables.
+     */
+    public static final int SHADOW_MODE_ELEVATION = 1;
 
     private static final float BIG_DIFFUSER_MIN_SHADOW_PERCENT = 0.25f;
     private static final float MEDIUM_DIFFUSER_MIN_SHADOW_PERCENT = 0.25f;
@@ -57,8 +116,26 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
     private ShadowDrawable mMediumShadowDrawable;
     private ShadowDrawable mSmallShadowDrawable;
 
-    private AnimatorSet mRevealAnimatorSet = null;
-    private AnimatorSet mDismissAnimatorSet = null;
+    /**
+     * Animator moving position of reveal and dismiss timeline. Morph takes first {@link #mDuration} ms of timeline,
+     * shadows and progress line fade during the rest. Reveal moves position to 1.0f, dismiss moves it to 0.0f.
+     * Reversal restarts animator from current position, so there is never more than one animation.
+     */
+    private final ValueAnimator mTimeline = ValueAnimator.ofFloat(0.0f, 1.0f);
+    private float mTimelinePosition = 0.0f;
+    private float mTimelineFrom;
+    private float mTimelineTo;
+    private boolean mTimelineCanceled;
+    /**
+     * Curves of timeline are chosen when animation starts from closed or open state and kept while it's reversed.
+     */
+    private boolean mTimelineDismiss;
+    private int mState = STATE_CLOSED;
+    private float mMediumDiffuserRevealTranslationY;
+    private float mPlayButtonTranslationY;
+    private Drawable mPlayDrawable;
+    private Drawable mPauseDrawable;
+    private Drawable mPlayButtonDrawable;
 
     private FloatingActionButton mPlayButton;
 
@@ -67,8 +144,18 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
     private RoundRectImageView mIvBackground;
     private DiffuserView mBigDiffuserImageView;
     private DiffuserView mMediumDiffuserImageView;
-    private ImageView mSmallDiffuserImageView;
+    private DiffuserView mSmallDiffuserImageView;
     private ProgressLineView mProgressLineView;
+    /**
+     * Views drawn by {@link FlatRendererView} in flat mode, in drawing order.
+     */
+    private View[] mComponentViews;
+    private FlatRendererView mFlatRendererView;
+    private int mRenderMode = RENDER_MODE_LAYERED;
+    private int mShadowMode = SHADOW_MODE_DRAWABLE;
+    private ElevationShadow mBigElevationShadow;
+    private ElevationShadow mMediumElevationShadow;
+    private ElevationShadow mSmallElevationShadow;
 
     private float mSmallDiffuserFullSize;
     private int mBigDiffuserShadowWidth;
@@ -117,7 +204,7 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         mIvBackground = (RoundRectImageView) this.findViewById(R.id.pw_ivBackground);
         mBigDiffuserImageView = (DiffuserView) this.findViewById(R.id.pw_ivBigDiffuser);
         mMediumDiffuserImageView = (DiffuserView) this.findViewById(R.id.pw_ivMediumDiffuser);
-        mSmallDiffuserImageView = (ImageView) this.findViewById(R.id.pw_ivSmallDiffuser);
+        mSmallDiffuserImageView = (DiffuserView) this.findViewById(R.id.pw_ivSmallDiffuser);
         mProgressLineView = (ProgressLineView) this.findViewById(R.id.pw_vProgressLine);
 
         mIvShuffle = (ImageView) this.findViewById(R.id.pw_ivShuffle);
@@ -125,6 +212,14 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         mIvSkipNext = (ImageView) this.findViewById(R.id.pw_ivSkipNext);
         mIvRepeat = (ImageView) this.findViewById(R.id.pw_ivRepeat);
 
+        mComponentViews = new View[]{
+                mIvBackground,
+                mBigDiffuserImageView,
+                mMediumDiffuserImageView,
+                mSmallDiffuserImageView,
+                mProgressLineView
+        };
+
         initListeners();
 
         if (!isInEditMode()) {
@@ -159,6 +254,8 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         mProgressLineView.setProgressBallRadius(progressBallRadius);
         mProgressLineView.setProgressLineStrokeWidth(progressLineStrokeWidth);
 
+        mIvBackground.setRenderMode(typedArrayValues.getInt(R.styleable.PlayWidget_pw_image_render_mode, IMAGE_RENDER_MODE_SHADER));
+
         Drawable d = typedArrayValues.getDrawable(R.styleable.PlayWidget_pw_image_src);
         if (d != null) {
             setImageDrawable(d);
@@ -171,6 +268,9 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         setProgressCompleteColor(typedArrayValues.getColor(R.styleable.PlayWidget_pw_progress_complete_line_color, ContextCompat.getColor(getContext(), R.color.pw_progress_complete_color)));
         setProgressBallColor(typedArrayValues.getColor(R.styleable.PlayWidget_pw_progress_ball_color, ContextCompat.getColor(getContext(), R.color.pw_progress_ball_color)));
 
+        int renderMode = typedArrayValues.getInt(R.styleable.PlayWidget_pw_render_mode, RENDER_MODE_LAYERED);
+        int shadowMode = typedArrayValues.getInt(R.styleable.PlayWidget_pw_shadow_mode, SHADOW_MODE_DRAWABLE);
+
         ColorStateList lFabBackgroundTint = typedArrayValues.getColorStateList(R.styleable.PlayWidget_pw_play_button_background_tint);
         if (lFabBackgroundTint != null)
             mPlayButton.setBackgroundTintList(lFabBackgroundTint);
@@ -182,7 +282,7 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         //big diffuser
         mIvBackground.setColor(bigDiffuserColor);
         mBigShadowDrawable = new ShadowDrawable(getContext(), true);
-        mBigShadowDrawable.hideShadow(false);
+        mBigShadowDrawable.setAlpha(0);
         setupDiffuserView(mBigDiffuserImageView, mBigShadowDrawable);
 
         //medium diffuser
@@ -197,7 +297,15 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         mSmallShadowDrawable = new ShadowDrawable(getContext());
         mSmallShadowDrawable.setup(mSmallDiffuserFullSize / 2.0f, mSmallDiffuserShadowWidth);
         setupDiffuserView(mSmallDiffuserImageView, mSmallShadowDrawable);
-        mSmallShadowDrawable.hideShadow(false);
+        mSmallShadowDrawable.setAlpha(0);
+
+        mPlayDrawable = ContextCompat.getDrawable(context, R.drawable.pw_play);
+        mPauseDrawable = ContextCompat.getDrawable(context, R.drawable.pw_pause);
+        setPlayButtonDrawable(mPlayDrawable);
+        initTimeline();
+
+        setRenderMode(renderMode);
+        setShadowMode(shadowMode);
     }
 
     private void initListeners() {
@@ -332,14 +440,14 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
 
         mRlImagesContainer.setPadding(0, 0, 0, mPlayButton.getHeight());
 
-        mBigDiffuserImageView.layout(
+        layoutComponent(mBigDiffuserImageView,
                 mDiffusersPadding + additionalPadding,
                 mDiffusersPadding,
                 containerSize - mDiffusersPadding + additionalPadding,
                 containerSize - mDiffusersPadding
         );
 
-        mProgressLineView.layout(
+        layoutComponent(mProgressLineView,
                 additionalPadding,
                 0,
                 containerSize + additionalPadding,
@@ -347,7 +455,7 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         );
 
         float bigDiffuserHalfRadius = (mBigDiffuserImageView.getRight() - mBigDiffuserImageView.getLeft()) / 2.0f;
-        mIvBackground.layout(
+        layoutComponent(mIvBackground,
                 mBigDiffuserShadowWidth + mDiffusersPadding + additionalPadding,
                 mBigDiffuserShadowWidth + mDiffusersPadding,
                 containerSize - mBigDiffuserShadowWidth - mDiffusersPadding + additionalPadding,
@@ -358,7 +466,7 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         float mediumDiffuserHalfRadius = (bigDiffuserHalfRadius + mPlayButton.getWidth()) / 2.2f;
 
         int mediumCircleShift = (int) (bigDiffuserHalfRadius - mediumDiffuserHalfRadius);
-        mMediumDiffuserImageView.layout(
+        layoutComponent(mMediumDiffuserImageView,
                 mBigDiffuserImageView.getLeft() + mediumCircleShift,
                 mBigDiffuserImageView.getTop() + mediumCircleShift,
                 mBigDiffuserImageView.getRight() - mediumCircleShift,
@@ -369,7 +477,7 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
 
         int smallCircleShift = (int) (bigDiffuserHalfRadius - mSmallDiffuserFullSize / 2.0f);
 
-        mSmallDiffuserImageView.layout(
+        layoutComponent(mSmallDiffuserImageView,
                 mBigDiffuserImageView.getLeft() + smallCircleShift,
                 mBigDiffuserImageView.getTop() + smallCircleShift,
                 mBigDiffuserImageView.getRight() - smallCircleShift,
@@ -379,11 +487,36 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         float smallDiffuserHalfRadius = mSmallDiffuserFullSize / 2.0f;
         mSmallShadowDrawable.setup(smallDiffuserHalfRadius, mSmallDiffuserShadowWidth);
 
+        if (isElevationShadowUsed()) {
+            // shadow widths could change
+            updateElevations();
+        }
+
+        if (mRenderMode == RENDER_MODE_FLAT) {
+            mFlatRendererView.layout(
+                    mProgressLineView.getLeft(),
+                    mProgressLineView.getTop(),
+                    mProgressLineView.getRight(),
+                    mProgressLineView.getBottom()
+            );
+        }
+
         if (isOpenInner()) {
             mPlayButton.setTranslationY(calculateFabTransitionY());
         }
     }
 
+    private void layoutComponent(View view, int left, int top, int right, int bottom) {
+        if (mRenderMode == RENDER_MODE_FLAT) {
+            // component is not attached in flat mode, so container doesn't measure it
+            view.measure(
+                    MeasureSpec.makeMeasureSpec(right - left, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(bottom - top, MeasureSpec.EXACTLY)
+            );
+        }
+        view.layout(left, top, right, bottom);
+    }
+
     @Override
     public void addView(View child) {
         if (child.getId() == R.id.pw_rlMainContainer) {
@@ -451,6 +584,8 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
     }
 
     public void fastOpen() {
+        mTimeline.cancel();
+        resetAnimationFlags();
         mIvBackground.setRevealDrawingAlpha(1.0f);
         mRadiusPercentage = 1.0f;
         if (mProgressLineView.isEnabled()) {
@@ -460,119 +595,182 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         revealView();
     }
 
+    /**
+     * Open diffusers. If they are closing, closing is reversed from its current point.
+     */
     public void startRevealAnimation() {
+        if (mState == STATE_OPEN || mState == STATE_OPENING) {
+            return;
+        }
         if (mShadowProvider != null) {
             mShadowProvider.setAllowChangeShadow(true);
         }
         mBigShadowDrawable.setShadowSizeMultiplier(1.0f);
         mMediumShadowDrawable.setShadowSizeMultiplier(1.0f);
         mSmallShadowDrawable.setShadowSizeMultiplier(1.0f);
-        mPlayButton.setImageResource(R.drawable.pw_pause);
-        mIvBackground.setRevealDrawingAlpha(1.0f);
-        mMediumDiffuserImageView.setAlpha(1.0f);
-        mBigShadowDrawable.hideShadow(false);
-        mSmallShadowDrawable.hideShadow(false);
-        mIvBackground.setRevealAnimation(true);
-        mMediumDiffuserImageView.setVisibility(View.VISIBLE);
-
-        if (mRevealAnimatorSet == null) {
-            mRevealAnimatorSet = new AnimatorSet();
-            Animator centerYImageAnimator = ObjectAnimator.ofFloat(mMediumDiffuserImageView, "translationY", getHeight() / 2, 0.0f);
-            centerYImageAnimator.setInterpolator(new DecelerateInterpolator(1.25f));
-            Animator scaleXImageAnimator = ObjectAnimator.ofFloat(mMediumDiffuserImageView, "scaleX", 0.0f, 1.0f);
-            Animator scaleYImageAnimator = ObjectAnimator.ofFloat(mMediumDiffuserImageView, "scaleY", 0.0f, 1.0f);
-            Animator alphaImageAnimator = ObjectAnimator.ofFloat(mMediumDiffuserImageView, "alpha", 0.0f, 1.0f);
-            alphaImageAnimator.setInterpolator(new AccelerateInterpolator(2));
-            Animator radiusPercentageAnimator = ObjectAnimator.ofFloat(this, "radiusPercentage", 0.0f, 1.0f);
-            Animator fabTransitionAnimator = ObjectAnimator.ofFloat(mPlayButton, "translationY", 0, calculateFabTransitionY());
-            fabTransitionAnimator.setInterpolator(new OvershootInterpolator(0.8f));
-            mRevealAnimatorSet.playTogether(
-                    centerYImageAnimator,
-                    scaleXImageAnimator,
-                    scaleYImageAnimator,
-                    alphaImageAnimator,
-                    radiusPercentageAnimator,
-                    fabTransitionAnimator
-            );
-            mRevealAnimatorSet.setDuration(mDuration);
-            mRevealAnimatorSet.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    super.onAnimationEnd(animation);
-                    mIvBackground.setRevealAnimation(false);
-                    mBigShadowDrawable.showShadow(true);
-                    mSmallShadowDrawable.showShadow(true, SMALL_SHADOW_OPACITY);
-                    ObjectAnimator.ofFloat(mProgressLineView, "alpha", 0.0f, 1.0f).setDuration(PROGRESS_LINE_ALPHA_ANIMATION_DURATION).start();
-//                    mProgressLineView.setEnabled(true);
-                }
-            });
+        setPlayButtonDrawable(mPauseDrawable);
+        if (mState == STATE_CLOSED) {
+            mIvBackground.setRevealDrawingAlpha(1.0f);
+            mIvBackground.setRevealAnimation(true);
+            mMediumDiffuserImageView.setVisibility(View.VISIBLE);
+            mMediumDiffuserRevealTranslationY = getHeight() / 2;
+            mPlayButtonTranslationY = calculateFabTransitionY();
+            mTimelineDismiss = false;
+            mTimelinePosition = 0.0f;
         }
-        mRevealAnimatorSet.start();
+        mState = STATE_OPENING;
+        animateTimeline(1.0f);
     }
 
     private void revealView() {
-        mPlayButton.setImageResource(R.drawable.pw_pause);
+        mState = STATE_OPEN;
+        mTimelinePosition = 1.0f;
+        setPlayButtonDrawable(mPauseDrawable);
         mMediumDiffuserImageView.setRadiusPercentage(mRadiusPercentage);
         mMediumDiffuserImageView.setTranslationY(0.0f);
         mMediumDiffuserImageView.setScaleX(1.0f);
         mMediumDiffuserImageView.setScaleY(1.0f);
         mMediumDiffuserImageView.setAlpha(1.0f);
 //        mIvBackground.setRevealAnimation(false);
-        mBigShadowDrawable.showShadow(false);
-        mSmallShadowDrawable.showShadow(false, SMALL_SHADOW_OPACITY);
+        mBigShadowDrawable.setAlpha(255);
+        mSmallShadowDrawable.setAlpha((int) (255 * SMALL_SHADOW_OPACITY));
+        invalidateFlatRenderer();
     }
 
+    /**
+     * Close diffusers. If they are opening, opening is reversed from its current point.
+     */
     public void startDismissAnimation() {
+        if (mState == STATE_CLOSED || mState == STATE_CLOSING) {
+            return;
+        }
         if (mShadowProvider != null) {
             mShadowProvider.setAllowChangeShadow(false);
         }
-        mIvBackground.setDismissAnimation(true);
-        mMediumDiffuserImageView.setDismissAnimation(true);
-        mBigShadowDrawable.hideShadow(true);
-        Animator progressViewDismissAnimator = ObjectAnimator.ofFloat(mProgressLineView, "alpha", 1.0f, 0.0f);
-        progressViewDismissAnimator.setDuration(PROGRESS_LINE_ALPHA_ANIMATION_DURATION).start();
-        mSmallShadowDrawable.hideShadow(true, SMALL_SHADOW_OPACITY, new AnimatorListenerAdapter() {
+        setPlayButtonDrawable(mPlayDrawable);
+        if (mState == STATE_OPEN) {
+            mIvBackground.setRevealAnimation(false);
+            mIvBackground.setDismissAnimation(true);
+            mMediumDiffuserImageView.setDismissAnimation(true);
+            mPlayButtonTranslationY = calculateFabTransitionY();
+            mTimelineDismiss = true;
+            mTimelinePosition = 1.0f;
+        }
+        mState = STATE_CLOSING;
+        animateTimeline(0.0f);
+    }
+
+    /**
+     * Move timeline from current position to target one. Running animation is replaced,
+     * its first frame is applied right away.
+     *
+     * @param position target position of timeline (0.0f - 1.0f)
+     */
+    private void animateTimeline(float position) {
+        mTimeline.cancel();
+        mTimelineFrom = mTimelinePosition;
+        mTimelineTo = position;
+        mTimeline.setDuration(Math.round(Math.abs(mTimelineTo - mTimelineFrom) * (mDuration + SHADOWS_ANIMATION_DURATION)));
+        mTimeline.start();
+    }
+
+    private void initTimeline() {
+        mTimeline.setInterpolator(TIMELINE_INTERPOLATOR);
+        mTimeline.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                Drawable fabPlayDrawable;
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
-                    fabPlayDrawable = getResources().getDrawable(R.drawable.pw_play, null);
+            public void onAnimationUpdate(ValueAnimator animation) {
+                // fraction is read instead of animated value, so frames don't box floats
+                mTimelinePosition = mTimelineFrom + (mTimelineTo - mTimelineFrom) * animation.getAnimatedFraction();
+                float time = mTimelinePosition * (mDuration + SHADOWS_ANIMATION_DURATION);
+                float morph = Utils.betweenZeroOne(time / mDuration);
+                float shadows = Utils.betweenZeroOne((time - mDuration) / SHADOWS_ANIMATION_DURATION);
+                if (mTimelineDismiss) {
+                    applyDismissFrame(1.0f - morph);
                 } else {
-                    //noinspection deprecation
-                    fabPlayDrawable = getResources().getDrawable(R.drawable.pw_play);
+                    applyRevealFrame(morph);
                 }
-                mPlayButton.setImageDrawable(fabPlayDrawable);
-
-                if (mDismissAnimatorSet == null) {
-                    mDismissAnimatorSet = new AnimatorSet();
-                    Animator alphaImageAnimator = ObjectAnimator.ofFloat(mMediumDiffuserImageView, "alpha", 1.0f, 0.0f);
-                    alphaImageAnimator.setInterpolator(new DecelerateInterpolator(2));
-                    Animator alphaBigDiffuserAnimator = ObjectAnimator.ofFloat(mIvBackground, "revealDrawingAlpha", 1.0f, 0.0f);
-                    Animator radiusPercentageAnimator = ObjectAnimator.ofFloat(PlayLayout.this, "radiusPercentage", 1.0f, 0.0f);
-                    Animator fabTransitionAnimator = ObjectAnimator.ofFloat(mPlayButton, "translationY", calculateFabTransitionY(), 0);
-                    fabTransitionAnimator.setInterpolator(new OvershootInterpolator(0.8f));
-                    mDismissAnimatorSet.playTogether(
-                            alphaImageAnimator,
-                            radiusPercentageAnimator,
-                            alphaBigDiffuserAnimator,
-                            fabTransitionAnimator
-                    );
-                    mDismissAnimatorSet.setDuration(mDuration);
-                    mDismissAnimatorSet.addListener(new AnimatorListenerAdapter() {
-                        @Override
-                        public void onAnimationEnd(Animator animation) {
-                            super.onAnimationEnd(animation);
-                            mIvBackground.setDismissAnimation(false);
-                            mMediumDiffuserImageView.setDismissAnimation(false);
-                        }
-                    });
+                applyShadowsFrame(shadows);
+                invalidateFlatRenderer();
+            }
+        });
+        mTimeline.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationStart(Animator animation) {
+                super.onAnimationStart(animation);
+                mTimelineCanceled = false;
+            }
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                super.onAnimationCancel(animation);
+                mTimelineCanceled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                super.onAnimationEnd(animation);
+                // canceled animation is replaced by reversed one or by fast open, they set state themselves
+                if (mTimelineCanceled) {
+                    return;
                 }
-                mDismissAnimatorSet.start();
+                mState = mState == STATE_OPENING ? STATE_OPEN : STATE_CLOSED;
+                resetAnimationFlags();
             }
         });
     }
 
+    /**
+     * In open and closed states images are drawn without reveal and dismiss effects.
+     */
+    private void resetAnimationFlags() {
+        mIvBackground.setRevealAnimation(false);
+        mIvBackground.setDismissAnimation(false);
+        mMediumDiffuserImageView.setDismissAnimation(false);
+    }
+
+    /**
+     * @param fraction fraction of reveal morph (0.0f - 1.0f)
+     */
+    private void applyRevealFrame(float fraction) {
+        float scale = DEFAULT_INTERPOLATOR.getInterpolation(fraction);
+        mMediumDiffuserImageView.setTranslationY(mMediumDiffuserRevealTranslationY
+                * (1.0f - MEDIUM_DIFFUSER_TRANSLATION_INTERPOLATOR.getInterpolation(fraction)));
+        mMediumDiffuserImageView.setScaleX(scale);
+        mMediumDiffuserImageView.setScaleY(scale);
+        mMediumDiffuserImageView.setAlpha(MEDIUM_DIFFUSER_REVEAL_ALPHA_INTERPOLATOR.getInterpolation(fraction));
+        setRadiusPercentage(DEFAULT_INTERPOLATOR.getInterpolation(fraction));
+        mPlayButton.setTranslationY(mPlayButtonTranslationY * PLAY_BUTTON_INTERPOLATOR.getInterpolation(fraction));
+        mIvBackground.setRevealAnimation(fraction < 1.0f);
+    }
+
+    /**
+     * @param fraction fraction of dismiss morph (0.0f - 1.0f)
+     */
+    private void applyDismissFrame(float fraction) {
+        float radiusPercentage = 1.0f - DEFAULT_INTERPOLATOR.getInterpolation(fraction);
+        mMediumDiffuserImageView.setAlpha(1.0f - MEDIUM_DIFFUSER_DISMISS_ALPHA_INTERPOLATOR.getInterpolation(fraction));
+        mIvBackground.setRevealDrawingAlpha(radiusPercentage);
+        setRadiusPercentage(radiusPercentage);
+        mPlayButton.setTranslationY(mPlayButtonTranslationY * (1.0f - PLAY_BUTTON_INTERPOLATOR.getInterpolation(fraction)));
+    }
+
+    /**
+     * @param fraction visible part of shadows and progress line (0.0f - 1.0f)
+     */
+    private void applyShadowsFrame(float fraction) {
+        float alpha = DEFAULT_INTERPOLATOR.getInterpolation(fraction);
+        mBigShadowDrawable.setAlpha((int) (255 * alpha));
+        mSmallShadowDrawable.setAlpha((int) (255 * SMALL_SHADOW_OPACITY * alpha));
+        mProgressLineView.setAlpha(alpha);
+    }
+
+    private void setPlayButtonDrawable(Drawable drawable) {
+        if (mPlayButtonDrawable != drawable) {
+            mPlayButtonDrawable = drawable;
+            mPlayButton.setImageDrawable(drawable);
+        }
+    }
+
     /**
      * Set progress for progress line view
      *
@@ -581,7 +779,6 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
     public void setProgress(float progress) {
         if (mProgressLineView.getVisibility() == VISIBLE) {
             mProgressLineView.setProgress(progress);
-            mProgressLineView.invalidate();
         }
     }
 
@@ -618,7 +815,8 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
     }
 
     /**
-     * Sets the content of this ImageView to the specified Uri.
+     * Sets the content of this ImageView to the specified Uri. Image is decoded on background thread
+     * and downsampled to the size of image view. Current image stays shown until new one is decoded.
      *
      * @param uri the Uri of an image, or null to clear the content
      */
@@ -635,6 +833,166 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         mIvBackground.setImageBitmap(bm);
     }
 
+    /**
+     * Set render mode for image. {@link #IMAGE_RENDER_MODE_MASK} keeps old per-frame mask compositing,
+     * {@link #IMAGE_RENDER_MODE_SHADER} draws image through cached shader,
+     * {@link #IMAGE_RENDER_MODE_OUTLINE} clips image by outline of view.
+     *
+     * @param renderMode {@link #IMAGE_RENDER_MODE_MASK}, {@link #IMAGE_RENDER_MODE_SHADER}
+     *                   or {@link #IMAGE_RENDER_MODE_OUTLINE}
+     */
+    public void setImageRenderMode(int renderMode) {
+        mIvBackground.setRenderMode(renderMode);
+    }
+
+    /**
+     * Get current render mode for image.
+     *
+     * @return {@link #IMAGE_RENDER_MODE_MASK}, {@link #IMAGE_RENDER_MODE_SHADER} or {@link #IMAGE_RENDER_MODE_OUTLINE}
+     */
+    public int getImageRenderMode() {
+        return mIvBackground.getRenderMode();
+    }
+
+    /**
+     * Set render mode of widget. In {@link #RENDER_MODE_FLAT} image, diffusers with shadows and progress line
+     * are drawn by one view in a single pass, so there are less views to measure, layout and draw.
+     * Use it when widget is placed in scrolling lists.
+     *
+     * @param renderMode {@link #RENDER_MODE_LAYERED} or {@link #RENDER_MODE_FLAT}
+     */
+    public void setRenderMode(int renderMode) {
+        if (renderMode != RENDER_MODE_LAYERED && renderMode != RENDER_MODE_FLAT) {
+            throw new IllegalArgumentException("Unknown render mode: " + renderMode);
+        }
+        if (mRenderMode == renderMode) {
+            return;
+        }
+        mRenderMode = renderMode;
+        boolean flat = renderMode == RENDER_MODE_FLAT;
+        if (flat && mFlatRendererView == null) {
+            mFlatRendererView = new FlatRendererView(getContext(),
+                    mIvBackground,
+                    mBigDiffuserImageView, mBigShadowDrawable,
+                    mMediumDiffuserImageView, mMediumShadowDrawable,
+                    mSmallDiffuserImageView, mSmallShadowDrawable,
+                    mProgressLineView);
+        }
+        if (flat) {
+            for (View view : mComponentViews) {
+                mRlImagesContainer.removeView(view);
+            }
+            LayoutParams params = new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            params.addRule(CENTER_IN_PARENT);
+            mRlImagesContainer.addView(mFlatRendererView, 0, params);
+        } else {
+            mRlImagesContainer.removeView(mFlatRendererView);
+            for (int i = 0; i < mComponentViews.length; i++) {
+                mRlImagesContainer.addView(mComponentViews[i], i);
+            }
+        }
+        View hostView = flat ? mFlatRendererView : null;
+        mIvBackground.setHostView(hostView);
+        mBigDiffuserImageView.setHostView(hostView);
+        mMediumDiffuserImageView.setHostView(hostView);
+        mSmallDiffuserImageView.setHostView(hostView);
+        mProgressLineView.setHostView(hostView);
+        mBigShadowDrawable.setCallback(flat ? mFlatRendererView : mBigDiffuserImageView);
+        mMediumShadowDrawable.setCallback(flat ? mFlatRendererView : mMediumDiffuserImageView);
+        mSmallShadowDrawable.setCallback(flat ? mFlatRendererView : mSmallDiffuserImageView);
+        applyShadowMode();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Get current render mode of widget.
+     *
+     * @return {@link #RENDER_MODE_LAYERED} or {@link #RENDER_MODE_FLAT}
+     */
+    public int getRenderMode() {
+        return mRenderMode;
+    }
+
+    /**
+     * Set shadow mode of widget. In {@link #SHADOW_MODE_ELEVATION} shadows pulsing with music don't redraw views,
+     * but look of shadows is defined by framework's light source.
+     *
+     * @param shadowMode {@link #SHADOW_MODE_DRAWABLE} or {@link #SHADOW_MODE_ELEVATION}
+     */
+    public void setShadowMode(int shadowMode) {
+        if (shadowMode != SHADOW_MODE_DRAWABLE && shadowMode != SHADOW_MODE_ELEVATION) {
+            throw new IllegalArgumentException("Unknown shadow mode: " + shadowMode);
+        }
+        if (mShadowMode == shadowMode) {
+            return;
+        }
+        mShadowMode = shadowMode;
+        applyShadowMode();
+    }
+
+    /**
+     * Get current shadow mode of widget.
+     *
+     * @return {@link #SHADOW_MODE_DRAWABLE} or {@link #SHADOW_MODE_ELEVATION}
+     */
+    public int getShadowMode() {
+        return mShadowMode;
+    }
+
+    private boolean isElevationShadowUsed() {
+        return mShadowMode == SHADOW_MODE_ELEVATION
+                && mRenderMode == RENDER_MODE_LAYERED
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void applyShadowMode() {
+        boolean elevation = isElevationShadowUsed();
+        if (elevation && mBigElevationShadow == null) {
+            mBigElevationShadow = new ElevationShadow(mBigDiffuserImageView, new MorphOutline(mBigDiffuserImageView));
+            mMediumElevationShadow = new ElevationShadow(mMediumDiffuserImageView, mMediumDiffuserImageView.getMorphOutline());
+            mSmallElevationShadow = new ElevationShadow(mSmallDiffuserImageView, new MorphOutline(mSmallDiffuserImageView));
+        }
+        if (elevation) {
+            updateElevations();
+            // drawable draws no shadow now, so medium diffuser can be clipped by the outline casting shadow
+            mMediumDiffuserImageView.setClipToMorphOutline(true);
+        } else if (mBigElevationShadow != null) {
+            mMediumDiffuserImageView.setClipToMorphOutline(false);
+            mBigElevationShadow.detach();
+            mMediumElevationShadow.detach();
+            mSmallElevationShadow.detach();
+            mProgressLineView.setElevation(0.0f);
+        }
+        mBigShadowDrawable.setElevationShadow(elevation ? mBigElevationShadow : null);
+        mMediumShadowDrawable.setElevationShadow(elevation ? mMediumElevationShadow : null);
+        mSmallShadowDrawable.setElevationShadow(elevation ? mSmallElevationShadow : null);
+    }
+
+    /**
+     * Views with higher elevation are drawn later, so elevation ranges of diffusers are stacked in drawing order
+     * and progress line is above all of them.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void updateElevations() {
+        float elevation = 0.0f;
+        mBigElevationShadow.attach(elevation);
+        elevation += ElevationShadow.maxElevation(mBigDiffuserShadowWidth);
+        mMediumElevationShadow.attach(elevation);
+        elevation += ElevationShadow.maxElevation(mMediumDiffuserShadowWidth);
+        mSmallElevationShadow.attach(elevation);
+        elevation += ElevationShadow.maxElevation(mSmallDiffuserShadowWidth);
+        // progress line has no background, so it has no outline and casts no shadow
+        mProgressLineView.setElevation(elevation);
+    }
+
+    private void invalidateFlatRenderer() {
+        if (mRenderMode == RENDER_MODE_FLAT) {
+            mFlatRendererView.invalidate();
+        }
+    }
+
     /**
      * Set size for buttons (shuffle, previous, next, repeat)
      *
@@ -662,6 +1020,7 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
      */
     public void setProgressEnabled(boolean enabled) {
         mProgressLineView.setEnabled(enabled);
+        invalidateFlatRenderer();
     }
 
     /**
@@ -942,21 +1301,33 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         mProgressLineView.setOnProgressChangedListener(progressChangedListener);
     }
 
+    /**
+     * Set listener for statistics of progress line invalidation.
+     *
+     * @param invalidationListener PlayLayout.OnProgressInvalidationListener listener for statistics;
+     */
+    public void setOnProgressInvalidationListener(@Nullable PlayLayout.OnProgressInvalidationListener invalidationListener) {
+        mProgressLineView.setOnProgressInvalidationListener(invalidationListener);
+    }
+
     private boolean isOpenInner() {
         return mRadiusPercentage > 0.5f;
     }
 
     /**
-     * Check if diffusers open
+     * Check if diffusers open. Diffusers that are opening count as open, so toggling by this check
+     * reverses running animation.
      *
-     * @return true if diffusers open, false otherwise
+     * @return true if diffusers open or opening, false otherwise
      */
     public boolean isOpen() {
-        return isOpenInner();
+        return mState == STATE_OPEN || mState == STATE_OPENING;
     }
 
-    @SuppressWarnings("unused")
     private void setRadiusPercentage(float radiusPercentage) {
+        if (mRadiusPercentage == radiusPercentage) {
+            return;
+        }
         this.mRadiusPercentage = radiusPercentage;
         mMediumDiffuserImageView.setRadiusPercentage(radiusPercentage);
         mIvBackground.setRadiusPercentage(radiusPercentage);
@@ -1044,6 +1415,7 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         if (mShadowProvider != null) {
             mShadowProvider.setShadowChangerListener(this);
         }
+        mIvBackground.restoreCover();
     }
 
     @Override
@@ -1051,6 +1423,8 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         if (mShadowProvider != null) {
             mShadowProvider.setShadowChangerListener(null);
         }
+        // image view itself is detached in flat mode too, so cover is released only when whole widget is gone
+        mIvBackground.releaseCover();
         super.onDetachedFromWindow();
     }
 
@@ -1134,7 +1508,7 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
             mShadowProvider.setAllowChangeShadow(ss.isAllowShadowChanging);
         }
 
-        if (isOpen()) {
+        if (isOpenInner()) {
             revealView();
         }
 
@@ -1274,6 +1648,17 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
         void onProgressChanged(float progress);
     }
 
+    /**
+     * Interface for measuring invalidation of progress line. Called about once per second while progress changes.
+     */
+    public interface OnProgressInvalidationListener {
+        /**
+         * @param invalidatedPixelsPerSecond pixels actually invalidated per second
+         * @param viewPixelsPerSecond        pixels that would be invalidated per second with full view invalidation
+         */
+        void onProgressInvalidated(long invalidatedPixelsPerSecond, long viewPixelsPerSecond);
+    }
+
     /**
      * Interface for buttons click listeners
      */
@@ -1417,6 +1802,37 @@ public class PlayLayout extends RelativeLayout implements OnShadowChangeListener
             return this;
         }
 
+        /**
+         * Set render mode for image.
+         *
+         * @param renderMode {@link #IMAGE_RENDER_MODE_MASK}, {@link #IMAGE_RENDER_MODE_SHADER}
+         *                   or {@link #IMAGE_RENDER_MODE_OUTLINE}
+         */
+        public Builder setImageRenderMode(int renderMode) {
+            playLayout.setImageRenderMode(renderMode);
+            return this;
+        }
+
+        /**
+         * Set render mode of widget.
+         *
+         * @param renderMode {@link #RENDER_MODE_LAYERED} or {@link #RENDER_MODE_FLAT}
+         */
+        public Builder setRenderMode(int renderMode) {
+            playLayout.setRenderMode(renderMode);
+            return this;
+        }
+
+        /**
+         * Set shadow mode of widget.
+         *
+         * @param shadowMode {@link #SHADOW_MODE_DRAWABLE} or {@link #SHADOW_MODE_ELEVATION}
+         */
+        public Builder setShadowMode(int shadowMode) {
+            playLayout.setShadowMode(shadowMode);
+            return this;
+        }
+
         /**
          * Set size for buttons (shuffle, previous, next, repeat)
          *
@@ -0,0 +1,140 @@
+package com.cleveroad.play_widget;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.cleveroad.play_widget.internal.FrameScheduler;
+
+/**
+ * Drives progress of {@link PlayLayout} from playback position.<br/><br/>
+ * Position source is sampled rarely (every {@link #DEFAULT_SAMPLE_INTERVAL} ms by default), between samples
+ * position is extrapolated on every display frame. While playback is paused frames are not requested,
+ * source is only polled with sample interval to detect resuming.<br/><br/>
+ * All methods must be called on main thread.
+ */
+public class PlaybackProgressDriver {
+
+    public static final long DEFAULT_SAMPLE_INTERVAL = 250;
+
+    private static final long NANOS_IN_MILLI = 1000000L;
+
+    private final PlayLayout mPlayLayout;
+    private final PositionSource mPositionSource;
+    private final FrameScheduler mFrameScheduler;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private long mSampleIntervalNanos = DEFAULT_SAMPLE_INTERVAL * NANOS_IN_MILLI;
+    private boolean mRunning;
+
+    private boolean mSampledPlaying;
+    private long mSampledPosition;
+    private long mSampledDuration;
+    private long mSampleTimeNanos;
+
+    private final Runnable mPausedSampleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mRunning) {
+                onFrame(System.nanoTime());
+            }
+        }
+    };
+
+    public PlaybackProgressDriver(@NonNull PlayLayout playLayout, @NonNull PositionSource positionSource) {
+        //noinspection ConstantConditions
+        if (playLayout == null || positionSource == null) {
+            throw new IllegalArgumentException("PlayLayout and PositionSource cannot be null");
+        }
+        mPlayLayout = playLayout;
+        mPositionSource = positionSource;
+        mFrameScheduler = FrameScheduler.create(new FrameScheduler.Callback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (mRunning) {
+                    onFrame(frameTimeNanos);
+                }
+            }
+        });
+    }
+
+    /**
+     * Set interval of sampling position source.
+     *
+     * @param sampleInterval interval in milliseconds
+     */
+    public void setSampleInterval(long sampleInterval) {
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("Sample interval must be positive");
+        }
+        mSampleIntervalNanos = sampleInterval * NANOS_IN_MILLI;
+    }
+
+    /**
+     * Start tracking position. Source is sampled immediately.
+     */
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        sample();
+        onFrame(mSampleTimeNanos);
+    }
+
+    /**
+     * Stop tracking position.
+     */
+    public void stop() {
+        mRunning = false;
+        mFrameScheduler.cancel();
+        mHandler.removeCallbacks(mPausedSampleRunnable);
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    private void sample() {
+        mSampledPlaying = mPositionSource.isPlaying();
+        if (mSampledPlaying) {
+            mSampledPosition = mPositionSource.getCurrentPosition();
+            mSampledDuration = mPositionSource.getDuration();
+        }
+        mSampleTimeNanos = System.nanoTime();
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (frameTimeNanos - mSampleTimeNanos >= mSampleIntervalNanos) {
+            sample();
+        }
+        if (!mSampledPlaying) {
+            mHandler.postDelayed(mPausedSampleRunnable, mSampleIntervalNanos / NANOS_IN_MILLI);
+            return;
+        }
+        if (mSampledDuration > 0) {
+            long elapsed = Math.max(0, frameTimeNanos - mSampleTimeNanos) / NANOS_IN_MILLI;
+            long position = Math.min(mSampledDuration, mSampledPosition + elapsed);
+            mPlayLayout.setProgress((float) position / mSampledDuration);
+        }
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Source of playback position, for example MediaPlayer. Methods are called on main thread.
+     */
+    public interface PositionSource {
+
+        boolean isPlaying();
+
+        /**
+         * @return current playback position in milliseconds
+         */
+        long getCurrentPosition();
+
+        /**
+         * @return duration of track in milliseconds
+         */
+        long getDuration();
+    }
+}
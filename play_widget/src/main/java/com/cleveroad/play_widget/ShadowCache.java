@@ -0,0 +1,149 @@
+package com.cleveroad.play_widget;
+
+import android.graphics.Path;
+import android.graphics.RadialGradient;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.support.annotation.Nullable;
+
+/**
+ * Bounded LRU cache of prebuilt shadow corner paths and gradients keyed by even shadow size.
+ * All entries are built for one corner radius, cache is cleared when radius changes.
+ */
+class ShadowCache {
+
+    static final int DEFAULT_CAPACITY = 48;
+
+    private final int mShadowStartColor;
+    private final int mShadowMiddleColor;
+    private final int mShadowEndColor;
+
+    private final int[] mKeys;
+    private final Entry[] mEntries;
+    private final long[] mLastAccess;
+    private int mSize;
+    private long mAccessCounter;
+
+    private float mCornerRadius = -1;
+    private final RectF mInnerBounds = new RectF();
+    private final RectF mOuterBounds = new RectF();
+
+    ShadowCache(int capacity, int shadowStartColor, int shadowMiddleColor, int shadowEndColor) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        mShadowStartColor = shadowStartColor;
+        mShadowMiddleColor = shadowMiddleColor;
+        mShadowEndColor = shadowEndColor;
+        mKeys = new int[capacity];
+        mEntries = new Entry[capacity];
+        mLastAccess = new long[capacity];
+    }
+
+    /**
+     * Set corner radius for all entries. Drops cached entries if radius changed.
+     *
+     * @param cornerRadius corner radius of shadow
+     */
+    void setCornerRadius(float cornerRadius) {
+        if (mCornerRadius == cornerRadius) {
+            return;
+        }
+        mCornerRadius = cornerRadius;
+        mSize = 0;
+    }
+
+    /**
+     * Prebuild entries for all even shadow sizes from 0 to maxShadowSize that fit into the cache.
+     *
+     * @param maxShadowSize maximum shadow size
+     */
+    void warmUp(int maxShadowSize) {
+        int maxSize = Math.min(maxShadowSize, (mKeys.length - 1) * 2);
+        for (int shadowSize = maxSize; shadowSize >= 0; shadowSize -= 2) {
+            get(shadowSize);
+        }
+    }
+
+    /**
+     * Get entry for shadow size, building it if it's not cached yet.
+     *
+     * @param shadowSize even shadow size
+     * @return cached entry
+     */
+    Entry get(int shadowSize) {
+        mAccessCounter++;
+        for (int i = 0; i < mSize; i++) {
+            if (mKeys[i] == shadowSize) {
+                mLastAccess[i] = mAccessCounter;
+                return mEntries[i];
+            }
+        }
+        int slot;
+        if (mSize < mKeys.length) {
+            slot = mSize++;
+        } else {
+            slot = 0;
+            for (int i = 1; i < mSize; i++) {
+                if (mLastAccess[i] < mLastAccess[slot]) {
+                    slot = i;
+                }
+            }
+        }
+        Entry entry = mEntries[slot];
+        if (entry == null) {
+            entry = new Entry();
+            mEntries[slot] = entry;
+        }
+        build(entry, shadowSize);
+        mKeys[slot] = shadowSize;
+        mLastAccess[slot] = mAccessCounter;
+        return entry;
+    }
+
+    private void build(Entry entry, int shadowSize) {
+        float cornerRadius = mCornerRadius;
+        mInnerBounds.set(-cornerRadius, -cornerRadius, cornerRadius, cornerRadius);
+        mOuterBounds.set(mInnerBounds);
+        mOuterBounds.inset(-shadowSize, -shadowSize);
+
+        Path path = entry.mCornerShadowPath;
+        path.reset();
+        path.setFillType(Path.FillType.EVEN_ODD);
+        path.moveTo(-cornerRadius, 0);
+        path.rLineTo(-shadowSize, 0);
+        // outer arc
+        path.arcTo(mOuterBounds, 180f, 90f, false);
+        // inner arc
+        path.arcTo(mInnerBounds, 270f, -90f, false);
+        path.close();
+
+        float shadowRadius = -mOuterBounds.top;
+        entry.mShader = null;
+        if (shadowRadius > 0f) {
+            float startRatio = cornerRadius / shadowRadius;
+            float midRatio = startRatio + ((1f - startRatio) / 2f);
+            entry.mShader = new RadialGradient(0, 0, shadowRadius,
+                    new int[]{0, mShadowStartColor, mShadowMiddleColor, mShadowEndColor},
+                    new float[]{0f, startRatio, midRatio, 1f},
+                    Shader.TileMode.CLAMP);
+        }
+    }
+
+    /**
+     * Prebuilt shadow corner.
+     */
+    static class Entry {
+        private final Path mCornerShadowPath = new Path();
+        private Shader mShader;
+
+        Path getCornerShadowPath() {
+            return mCornerShadowPath;
+        }
+
+        @Nullable
+        Shader getShader() {
+            return mShader;
+        }
+    }
+}
@@ -1,14 +1,12 @@
 package com.cleveroad.play_widget;
 
-import android.animation.Animator;
-import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PixelFormat;
-import android.graphics.RadialGradient;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Shader;
@@ -19,22 +17,28 @@ import android.support.v4.content.ContextCompat;
 import com.cleveroad.play_widget.internal.Utils;
 
 /**
- * Drawable that draw shadow for diffusers. provide methods for changing shadow size
+ * Drawable that draw shadow for diffusers. provide methods for changing shadow size<br/><br/>
+ * When content bounds are square, four shadow corners form a ring, so shadow is drawn as one stroked circle
+ * with radial gradient instead of four rotated corner paths.
+ * With {@link ElevationShadow} set, drawable draws nothing and forwards shadow size and alpha to it.
  */
 class ShadowDrawable extends Drawable {
-    private static final int SHADOW_ANIMATION_DURATION = 350;
-
     private float mShadowSizeMultiplier = 0.5f;
     private final Paint mCornerShadowPaint;
     private final RectF mContentBounds;
     private float mCornerRadius;
     private Path mCornerShadowPath;
+    private final Matrix mShaderMatrix;
+    private boolean mRingMode;
+    private float mRingRadius;
+    private final ShadowCache mShadowCache;
 
     private float mFinalShadowSize;
-    private float mShadowSize;
+    private int mShadowSize;
     private float mRawShadowSize;
 
     private boolean mDirty = true;
+    private ElevationShadow mElevationShadow;
 
     private final int mShadowStartColor;
     private final int mShadowMiddleColor;
@@ -58,25 +62,55 @@ class ShadowDrawable extends Drawable {
         mCornerShadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
         mCornerShadowPaint.setStyle(Paint.Style.FILL);
         mContentBounds = new RectF();
+        mShaderMatrix = new Matrix();
+        mShadowCache = new ShadowCache(ShadowCache.DEFAULT_CAPACITY, mShadowStartColor, mShadowMiddleColor, mShadowEndColor);
     }
 
     public void setup(float radius, float pShadowSize) {
         mCornerRadius = Math.round(radius) - pShadowSize;
         mFinalShadowSize = pShadowSize;
         setShadowSize(pShadowSize);
+        warmUp(radius);
+    }
+
+    /**
+     * Prebuild shadow corners for all shadow sizes, so changing of shadow size multiplier doesn't rebuild geometry.
+     */
+    private void warmUp(float radius) {
+        Rect bounds = getBounds();
+        float cornerRadius = bounds.isEmpty() ? radius - mRawShadowSize : calculateCornerRadius(bounds);
+        if (cornerRadius <= 0) {
+            return;
+        }
+        mShadowCache.setCornerRadius(cornerRadius);
+        mShadowCache.warmUp((int) mRawShadowSize);
     }
 
     /**
-     * Casts the value to an even integer.
+     * Set shadow cast by framework instead of drawing it.
+     *
+     * @param elevationShadow elevation shadow or null to draw shadow
      */
-    private static int toEven(float value) {
-        int i = Math.round(value);
-        return (i % 2 == 1) ? i - 1 : i;
+    void setElevationShadow(ElevationShadow elevationShadow) {
+        mElevationShadow = elevationShadow;
+        if (elevationShadow != null) {
+            elevationShadow.setAlpha(mCornerShadowPaint.getAlpha());
+            elevationShadow.setShadowSize(mRawShadowSize, mShadowSizeMultiplier);
+        }
+        invalidateSelf();
     }
 
     @Override
     public void setAlpha(int alpha) {
+        // alpha is set on every frame of reveal timeline, mostly with the same value
+        if (mCornerShadowPaint.getAlpha() == alpha) {
+            return;
+        }
         mCornerShadowPaint.setAlpha(alpha);
+        if (mElevationShadow != null) {
+            mElevationShadow.setAlpha(alpha);
+            return;
+        }
         invalidateSelf();
     }
 
@@ -91,7 +125,7 @@ class ShadowDrawable extends Drawable {
      */
     public void setShadowSizeMultiplier(float multiplier) {
         mShadowSizeMultiplier = multiplier;
-        setShadowSize(mFinalShadowSize, true);
+        setShadowSize(mFinalShadowSize, false);
     }
 
     @Override
@@ -107,13 +141,19 @@ class ShadowDrawable extends Drawable {
         if (pShadowSize < 0) {
             throw new IllegalArgumentException("invalid shadow size");
         }
-        pShadowSize = toEven(pShadowSize);
-        if (mRawShadowSize == pShadowSize && !hardSet) {
+        pShadowSize = Utils.toEven(pShadowSize);
+        int shadowSize = Utils.toEven(pShadowSize * mShadowSizeMultiplier);
+        if (mRawShadowSize == pShadowSize && mShadowSize == shadowSize && !hardSet) {
             return;
         }
         mRawShadowSize = pShadowSize;
-        mShadowSize = Math.round(pShadowSize * mShadowSizeMultiplier);
+        mShadowSize = shadowSize;
         mDirty = true;
+        if (mElevationShadow != null) {
+            // elevation is changed without redrawing
+            mElevationShadow.setShadowSize(mRawShadowSize, mShadowSizeMultiplier);
+            return;
+        }
         invalidateSelf();
     }
 
@@ -132,6 +172,9 @@ class ShadowDrawable extends Drawable {
 
     @Override
     public void draw(Canvas canvas) {
+        if (mElevationShadow != null) {
+            return;
+        }
         if (mDirty) {
             buildComponents(getBounds());
             mDirty = false;
@@ -139,7 +182,29 @@ class ShadowDrawable extends Drawable {
         drawShadow(canvas);
     }
 
+    /**
+     * Draw shadow with alpha multiplied by alpha of owner view.
+     *
+     * @param alpha alpha multiplier (0.0f - 1.0f)
+     */
+    void draw(Canvas canvas, float alpha) {
+        if (alpha >= 1.0f) {
+            draw(canvas);
+            return;
+        }
+        int paintAlpha = mCornerShadowPaint.getAlpha();
+        mCornerShadowPaint.setAlpha((int) (paintAlpha * alpha));
+        draw(canvas);
+        mCornerShadowPaint.setAlpha(paintAlpha);
+    }
+
     private void drawShadow(Canvas canvas) {
+        if (mRingMode) {
+            if (mShadowSize > 0) {
+                canvas.drawCircle(mContentBounds.centerX(), mContentBounds.centerY(), mRingRadius, mCornerShadowPaint);
+            }
+            return;
+        }
         final int rotateSaved = canvas.save();
         // LT
         int saved = canvas.save();
@@ -170,73 +235,36 @@ class ShadowDrawable extends Drawable {
     }
 
     private void buildShadowCorners() {
-        RectF innerBounds = new RectF(-mCornerRadius, -mCornerRadius, mCornerRadius, mCornerRadius);
-        RectF outerBounds = new RectF(innerBounds);
-        outerBounds.inset(-mShadowSize, -mShadowSize);
-
-        if (mCornerShadowPath == null) {
-            mCornerShadowPath = new Path();
-        } else {
-            mCornerShadowPath.reset();
-        }
-        mCornerShadowPath.setFillType(Path.FillType.EVEN_ODD);
-        mCornerShadowPath.moveTo(-mCornerRadius, 0);
-        mCornerShadowPath.rLineTo(-mShadowSize, 0);
-        // outer arc
-        mCornerShadowPath.arcTo(outerBounds, 180f, 90f, false);
-        // inner arc
-        mCornerShadowPath.arcTo(innerBounds, 270f, -90f, false);
-        mCornerShadowPath.close();
-
-        float shadowRadius = -outerBounds.top;
-        if (shadowRadius > 0f) {
-            float startRatio = mCornerRadius / shadowRadius;
-            float midRatio = startRatio + ((1f - startRatio) / 2f);
-            RadialGradient gradient = new RadialGradient(0, 0, shadowRadius,
-                    new int[]{0, mShadowStartColor, mShadowMiddleColor, mShadowEndColor},
-                    new float[]{0f, startRatio, midRatio, 1f},
-                    Shader.TileMode.CLAMP);
-            mCornerShadowPaint.setShader(gradient);
+        mShadowCache.setCornerRadius(mCornerRadius);
+        ShadowCache.Entry entry = mShadowCache.get(mShadowSize);
+        mCornerShadowPath = entry.getCornerShadowPath();
+        Shader shader = entry.getShader();
+        if (mRingMode && shader != null) {
+            // gradient is centered at origin, move it to the center of ring instead of translating canvas
+            mShaderMatrix.setTranslate(mContentBounds.centerX(), mContentBounds.centerY());
+            shader.setLocalMatrix(mShaderMatrix);
+        } else if (shader != null) {
+            mShaderMatrix.reset();
+            shader.setLocalMatrix(mShaderMatrix);
         }
+        mCornerShadowPaint.setShader(shader);
+        mCornerShadowPaint.setStyle(mRingMode ? Paint.Style.STROKE : Paint.Style.FILL);
+        mCornerShadowPaint.setStrokeWidth(mShadowSize);
+        mRingRadius = mCornerRadius + mShadowSize / 2f;
     }
 
     private void buildComponents(Rect bounds) {
         final float verticalOffset = mRawShadowSize;
         mContentBounds.set(bounds.left + mRawShadowSize, bounds.top + verticalOffset,
                 bounds.right - mRawShadowSize, bounds.bottom - verticalOffset);
-        mCornerRadius = (mContentBounds.bottom - mContentBounds.top) / 2;
+        mCornerRadius = calculateCornerRadius(bounds);
+        mRingMode = Math.abs(mContentBounds.width() - mContentBounds.height()) < 1f;
 
         buildShadowCorners();
     }
 
-    public void showShadow(boolean animated) {
-        showShadow(animated, 1.0f);
-    }
-
-    public void showShadow(boolean animated, float percentage) {
-        percentage = Utils.betweenZeroOne(percentage);
-        if (animated) {
-            ObjectAnimator.ofInt(this, "alpha", 0, (int) (255 * percentage)).setDuration(SHADOW_ANIMATION_DURATION).start();
-        } else {
-            setAlpha((int) (255 * percentage));
-        }
-    }
-
-    public void hideShadow(boolean animated) {
-        hideShadow(animated, 1.0f, null);
-    }
-
-    public void hideShadow(boolean animated, float percentage, Animator.AnimatorListener listener) {
-        percentage = Utils.betweenZeroOne(percentage);
-        if (animated) {
-            Animator animator = ObjectAnimator.ofInt(this, "alpha", (int) (255 * percentage), 0).setDuration(SHADOW_ANIMATION_DURATION);
-            if (listener != null) {
-                animator.addListener(listener);
-            }
-            animator.start();
-        } else {
-            setAlpha(0);
-        }
+    private float calculateCornerRadius(Rect bounds) {
+        return (bounds.height() - mRawShadowSize * 2) / 2;
     }
 
-}
\ No newline at end of file
+}
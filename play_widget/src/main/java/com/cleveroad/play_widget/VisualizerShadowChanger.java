@@ -1,40 +1,98 @@
 package com.cleveroad.play_widget;
 
 import android.media.audiofx.Visualizer;
+import android.support.annotation.NonNull;
+
+import com.cleveroad.play_widget.internal.FftBandAnalyzer;
+import com.cleveroad.play_widget.internal.FftRingBuffer;
+import com.cleveroad.play_widget.internal.FrameScheduler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Shadow provider that depends on audio playing in player.
+ * Shadow provider that depends on audio playing in player.<br/><br/>
+ * Captured FFT data is copied into ring buffer and analyzed on separate worker thread.
+ * Shadow is changed on main thread once per frame with the latest analyzed levels.
  */
 public class VisualizerShadowChanger extends PlayLayout.ShadowPercentageProvider implements Visualizer.OnDataCaptureListener {
-    /**
-     * Maximum value of dB. Used for controlling wave height percentage.
-     */
+
+    public static final int DEFAULT_BANDS_COUNT = 3;
+
     private boolean mVisualisationEnabled = false;
-    private static final float MAX_DB_VALUE = 45;
 
-    private static final int LOW_FREQUENCY = 300;
-    private static final int MID_FREQUENCY = 2500;
-    private static final int HIGH_FREQUENCY = 3000;
+    private static final int DIFFUSERS_COUNT = 3;
 
-    private static final float[] SOUND_INDEX_COEFFICIENTS = new float[]{
-            LOW_FREQUENCY / 44100f,
-            MID_FREQUENCY / 44100f,
-            HIGH_FREQUENCY / 44100f,
-    };
+    private static final int RING_BUFFER_CAPACITY = 4;
 
-    private static final float FILTRATION_ALPHA = 0.55f;
-    private static final float FILTRATION_BETA = 1 - FILTRATION_ALPHA;
-    private float[] mDbsPercentagesConcrete = new float[SOUND_INDEX_COEFFICIENTS.length];
+    private final FftBandAnalyzer mAnalyzer;
     private Visualizer mVisualizer;
 
-    private VisualizerShadowChanger(int audioSessionId) {
+    private final FftRingBuffer mRingBuffer;
+    private final Thread mWorkerThread;
+    private volatile boolean mWorkerRunning = true;
+    /**
+     * Diffuser levels published by worker thread as float bits.
+     */
+    private final AtomicIntegerArray mPublishedLevels = new AtomicIntegerArray(DIFFUSERS_COUNT);
+    private final AtomicBoolean mHasPublishedLevels = new AtomicBoolean(false);
+    /**
+     * Band levels published by worker thread as float bits.
+     */
+    private final AtomicIntegerArray mPublishedBandLevels;
+    private final FrameScheduler mFrameScheduler;
+
+    private VisualizerShadowChanger(int audioSessionId, int bandsCount) {
+        if (bandsCount < 1) {
+            throw new IllegalArgumentException("Bands count must be positive");
+        }
+        mAnalyzer = new FftBandAnalyzer(bandsCount, DIFFUSERS_COUNT);
+        mPublishedBandLevels = new AtomicIntegerArray(bandsCount);
+
+        mFrameScheduler = FrameScheduler.create(new FrameScheduler.Callback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                dispatchPublishedLevels();
+            }
+        });
+
+        int captureSize = Visualizer.getCaptureSizeRange()[1];
+        mRingBuffer = new FftRingBuffer(RING_BUFFER_CAPACITY, captureSize);
+        mWorkerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processFrames();
+            }
+        }, "VisualizerShadowChanger");
+        mWorkerThread.setDaemon(true);
+
+        // visualizer throws without permission or for unsupported session, so worker is started only after it
         mVisualizer = new Visualizer(audioSessionId);
-        mVisualizer.setCaptureSize(Visualizer.getCaptureSizeRange()[1]);
-        mVisualizer.setDataCaptureListener(this, Visualizer.getMaxCaptureRate(), false, true);
+        try {
+            mVisualizer.setCaptureSize(captureSize);
+            mVisualizer.setDataCaptureListener(this, Visualizer.getMaxCaptureRate(), false, true);
+        } catch (RuntimeException e) {
+            mVisualizer.release();
+            throw e;
+        }
+        mWorkerThread.start();
     }
 
     public static VisualizerShadowChanger newInstance(int audioSessionId) {
-        return new VisualizerShadowChanger(audioSessionId);
+        return new VisualizerShadowChanger(audioSessionId, DEFAULT_BANDS_COUNT);
+    }
+
+    /**
+     * Create shadow changer that splits spectrum into several bands. Bands are grouped into
+     * three ranges (low, middle, high) for big, medium and small diffusers.
+     *
+     * @param audioSessionId audio session to capture
+     * @param bandsCount     count of logarithmically spaced frequency bands
+     * @return new VisualizerShadowChanger
+     */
+    public static VisualizerShadowChanger newInstance(int audioSessionId, int bandsCount) {
+        return new VisualizerShadowChanger(audioSessionId, bandsCount);
     }
 
     /**
@@ -47,11 +105,38 @@ public class VisualizerShadowChanger extends PlayLayout.ShadowPercentageProvider
         updateVisualisationEnable();
     }
 
+    /**
+     * Release visualizer and stop worker thread. Must be called on main thread.
+     */
     public void release() {
         if (mVisualizer != null) {
             mVisualizer.release();
         }
         mVisualizer = null;
+        mWorkerRunning = false;
+        LockSupport.unpark(mWorkerThread);
+        mFrameScheduler.cancel();
+    }
+
+    /**
+     * Get count of frequency bands.
+     *
+     * @return count of bands
+     */
+    public int getBandsCount() {
+        return mAnalyzer.getBandsCount();
+    }
+
+    /**
+     * Copy levels of frequency bands published by worker thread after last analyzed frame.
+     * Can be called from any thread.
+     *
+     * @param levels array with length at least {@link #getBandsCount()} for levels (0.0f - 1.0f)
+     */
+    public void getBandLevels(@NonNull float[] levels) {
+        for (int i = 0; i < mPublishedBandLevels.length(); i++) {
+            levels[i] = Float.intBitsToFloat(mPublishedBandLevels.get(i));
+        }
     }
 
     private void updateVisualisationEnable() {
@@ -72,30 +157,45 @@ public class VisualizerShadowChanger extends PlayLayout.ShadowPercentageProvider
 
     @Override
     public void onFftDataCapture(Visualizer visualizer, byte[] fft, int samplingRate) {
-        int dataSize = fft.length / 2 - 1;
-        for (int i = 0; i < SOUND_INDEX_COEFFICIENTS.length; i++) {
-            int index = (int) (SOUND_INDEX_COEFFICIENTS[i] * dataSize);
-            byte real = fft[2 * index];
-            byte imag = fft[2 * index + 1];
-            long magnitudeSquare = real * real + imag * imag;
-            magnitudeSquare = (long) Math.sqrt(magnitudeSquare);
-            float dbs = magnitudeToDb(magnitudeSquare);
-            float dbPercentage = dbs / MAX_DB_VALUE;
-            if (dbPercentage > 1.0f) {
-                dbPercentage = 1.0f;
-            }
-            mDbsPercentagesConcrete[i] = mDbsPercentagesConcrete[i] * FILTRATION_ALPHA + dbPercentage * FILTRATION_BETA;
+        if (mRingBuffer.offer(fft, samplingRate)) {
+            LockSupport.unpark(mWorkerThread);
         }
-
-        changeShadow(mDbsPercentagesConcrete[0], mDbsPercentagesConcrete[1], mDbsPercentagesConcrete[2]);
-
     }
 
-    private float magnitudeToDb(float squareMag) {
-        if (squareMag == 0) {
-            return 0;
+    /**
+     * Worker thread loop. Analyzes only the latest captured frame, stale frames are skipped.
+     */
+    private void processFrames() {
+        while (mWorkerRunning) {
+            int slot = mRingBuffer.acquireLatest();
+            if (slot < 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            mAnalyzer.analyze(mRingBuffer.getData(slot), mRingBuffer.getLength(slot), mRingBuffer.getSamplingRate(slot));
+            mRingBuffer.release();
+            for (int i = 0; i < DIFFUSERS_COUNT; i++) {
+                mPublishedLevels.set(i, Float.floatToRawIntBits(mAnalyzer.getGroupLevel(i)));
+            }
+            for (int i = 0; i < mPublishedBandLevels.length(); i++) {
+                mPublishedBandLevels.set(i, Float.floatToRawIntBits(mAnalyzer.getBandLevel(i)));
+            }
+            mHasPublishedLevels.set(true);
+            mFrameScheduler.schedule();
         }
-        return (float) (20 * Math.log10(squareMag));
     }
 
-}
\ No newline at end of file
+    /**
+     * Called on main thread once per frame.
+     */
+    private void dispatchPublishedLevels() {
+        if (!mWorkerRunning || !mHasPublishedLevels.getAndSet(false)) {
+            return;
+        }
+        changeShadow(
+                Float.intBitsToFloat(mPublishedLevels.get(0)),
+                Float.intBitsToFloat(mPublishedLevels.get(1)),
+                Float.intBitsToFloat(mPublishedLevels.get(2))
+        );
+    }
+}
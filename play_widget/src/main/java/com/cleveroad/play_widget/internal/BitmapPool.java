@@ -0,0 +1,145 @@
+package com.cleveroad.play_widget.internal;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of mutable bitmaps for decoding with {@link android.graphics.BitmapFactory.Options#inBitmap}.<br/><br/>
+ * Bitmaps are grouped into buckets by power of two of their size in bytes. On API 19+ any bitmap that is
+ * large enough can be reused, on older APIs only bitmap with exactly the same dimensions.
+ * When pool exceeds max size the oldest bitmaps are recycled. Thread safe.
+ */
+public class BitmapPool {
+
+    private final int mMaxSize;
+    private int mSize;
+    private final SparseArray<ArrayList<Bitmap>> mBuckets = new SparseArray<>();
+    /**
+     * All pooled bitmaps from the oldest to the newest.
+     */
+    private final ArrayList<Bitmap> mBitmaps = new ArrayList<>();
+
+    /**
+     * @param maxSize max size of pooled bitmaps in bytes
+     */
+    public BitmapPool(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Max size cannot be negative");
+        }
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Put bitmap into pool. Bitmap must not be used by anyone after this call.
+     *
+     * @param bitmap bitmap to reuse
+     */
+    public synchronized void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        int size = getSize(bitmap);
+        if (!bitmap.isMutable() || size > mMaxSize) {
+            bitmap.recycle();
+            return;
+        }
+        int bucket = getBucket(size);
+        ArrayList<Bitmap> bitmaps = mBuckets.get(bucket);
+        if (bitmaps == null) {
+            bitmaps = new ArrayList<>();
+            mBuckets.put(bucket, bitmaps);
+        }
+        bitmaps.add(bitmap);
+        mBitmaps.add(bitmap);
+        mSize += size;
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Get bitmap that can be used as {@link android.graphics.BitmapFactory.Options#inBitmap}
+     * for decoding image with given dimensions.
+     *
+     * @param width  width of decoded image
+     * @param height height of decoded image
+     * @param config config of decoded image
+     * @return bitmap removed from pool or null if there is no suitable bitmap
+     */
+    @Nullable
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        int size = width * height * getBytesPerPixel(config);
+        int bucket = getBucket(size);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // bitmap from next bucket wastes at most 3/4 of its size
+            Bitmap bitmap = take(bucket, size, 0, 0, config);
+            return bitmap != null ? bitmap : take(bucket + 1, size, 0, 0, config);
+        }
+        return take(bucket, size, width, height, config);
+    }
+
+    /**
+     * Recycle all pooled bitmaps.
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    private Bitmap take(int bucket, int size, int width, int height, Bitmap.Config config) {
+        ArrayList<Bitmap> bitmaps = mBuckets.get(bucket);
+        if (bitmaps == null) {
+            return null;
+        }
+        for (int i = 0; i < bitmaps.size(); i++) {
+            Bitmap bitmap = bitmaps.get(i);
+            boolean suitable = width > 0
+                    ? bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config
+                    : getSize(bitmap) >= size;
+            if (suitable) {
+                bitmaps.remove(i);
+                mBitmaps.remove(bitmap);
+                mSize -= getSize(bitmap);
+                return bitmap;
+            }
+        }
+        return null;
+    }
+
+    private void trimToSize(int maxSize) {
+        while (mSize > maxSize && !mBitmaps.isEmpty()) {
+            Bitmap bitmap = mBitmaps.remove(0);
+            int size = getSize(bitmap);
+            mBuckets.get(getBucket(size)).remove(bitmap);
+            mSize -= size;
+            bitmap.recycle();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static int getSize(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * @return index of the smallest power of two that is not less than size
+     */
+    private static int getBucket(int size) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(0, size - 1));
+    }
+
+    private static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        return 4;
+    }
+}
@@ -0,0 +1,326 @@
+package com.cleveroad.play_widget.internal;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads images by Uri for one target view.<br/><br/>
+ * Image is decoded on background thread with sample size that fits measured size of target,
+ * into bitmap reused from shared {@link BitmapPool}. Recently shown images are kept in shared LRU cache.
+ * Bitmaps evicted from cache are returned to pool when no target shows them, so target must {@link #release()}
+ * image when it's gone. Requests don't reference target, so they don't keep it alive.
+ * All methods must be called on main thread.
+ */
+public class CoverLoader {
+
+    private static final String TAG = "CoverLoader";
+
+    private static final int MAX_MEMORY = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory());
+    private static final int CACHE_SIZE = MAX_MEMORY / 32;
+    private static final int POOL_SIZE = MAX_MEMORY / 32;
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "CoverLoader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final BitmapPool POOL = new BitmapPool(POOL_SIZE);
+
+    /**
+     * Bitmaps currently shown by targets. Same bitmap can be shown by several targets.
+     */
+    private static final ArrayList<Bitmap> SHOWN_BITMAPS = new ArrayList<>();
+    /**
+     * Bitmaps evicted from cache while they were shown.
+     */
+    private static final ArrayList<Bitmap> ORPHAN_BITMAPS = new ArrayList<>();
+
+    private static final LruCache<String, Bitmap> CACHE = new LruCache<String, Bitmap>(CACHE_SIZE) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+            if (oldValue == newValue) {
+                return;
+            }
+            if (SHOWN_BITMAPS.contains(oldValue)) {
+                ORPHAN_BITMAPS.add(oldValue);
+            } else {
+                POOL.put(oldValue);
+            }
+        }
+    };
+
+    private final Target mTarget;
+    private Uri mUri;
+    /**
+     * Uri of the last loaded image, it's loaded again after {@link #release()}.
+     */
+    private Uri mSourceUri;
+    private boolean mPending;
+    private Request mRequest;
+    private Bitmap mShownBitmap;
+
+    public CoverLoader(@NonNull Target target) {
+        mTarget = target;
+    }
+
+    /**
+     * Start loading image. Current image stays shown until new one is decoded.
+     * If target isn't measured yet, loading starts in {@link #onTargetSizeChanged()}.
+     *
+     * @param uri uri of image or null to clear target
+     */
+    public void load(@Nullable Uri uri) {
+        cancel();
+        if (uri == null) {
+            mTarget.setCoverBitmap(null);
+            clear();
+            return;
+        }
+        mSourceUri = uri;
+        mUri = uri;
+        mPending = true;
+        startPending();
+    }
+
+    /**
+     * Should be called when size of target changed.
+     */
+    public void onTargetSizeChanged() {
+        startPending();
+    }
+
+    /**
+     * Cancel loading and release shown image. Call it when target shows image from another source.
+     */
+    public void clear() {
+        cancel();
+        mSourceUri = null;
+        show(null);
+    }
+
+    /**
+     * Cancel loading and release shown image, but remember its uri. Call it when target is gone,
+     * otherwise shown image is never returned to pool.
+     */
+    public void release() {
+        cancel();
+        if (mShownBitmap != null) {
+            mTarget.setCoverBitmap(null);
+            show(null);
+        }
+    }
+
+    /**
+     * Load image released by {@link #release()} again.
+     */
+    public void restore() {
+        if (mSourceUri != null && mShownBitmap == null && mRequest == null) {
+            load(mSourceUri);
+        }
+    }
+
+    private void cancel() {
+        mPending = false;
+        mUri = null;
+        if (mRequest != null) {
+            mRequest.mLoader = null;
+            mRequest = null;
+        }
+    }
+
+    private void startPending() {
+        int width = mTarget.getWidth();
+        int height = mTarget.getHeight();
+        if (!mPending || width <= 0 || height <= 0) {
+            return;
+        }
+        mPending = false;
+        String key = mUri + "@" + width + "x" + height;
+        Bitmap cached = CACHE.get(key);
+        if (cached != null) {
+            show(cached);
+            return;
+        }
+        // resolver of activity context would keep activity until request is finished
+        mRequest = new Request(this, mTarget.getContext().getApplicationContext().getContentResolver(), mUri, key, width, height);
+        EXECUTOR.execute(mRequest);
+    }
+
+    private void onRequestFinished(Request request, @Nullable Bitmap bitmap) {
+        if (request != mRequest) {
+            POOL.put(bitmap);
+            return;
+        }
+        mRequest = null;
+        mUri = null;
+        show(bitmap);
+        if (bitmap != null) {
+            CACHE.put(request.mKey, bitmap);
+        }
+    }
+
+    private void show(@Nullable Bitmap bitmap) {
+        Bitmap previous = mShownBitmap;
+        if (previous == bitmap) {
+            return;
+        }
+        mShownBitmap = bitmap;
+        if (bitmap != null) {
+            SHOWN_BITMAPS.add(bitmap);
+            mTarget.setCoverBitmap(bitmap);
+        }
+        if (previous != null) {
+            SHOWN_BITMAPS.remove(previous);
+            if (!SHOWN_BITMAPS.contains(previous) && ORPHAN_BITMAPS.remove(previous)) {
+                POOL.put(previous);
+            }
+        }
+    }
+
+    /**
+     * Decode image with the largest power of two sample size that keeps image not smaller than target.
+     */
+    @Nullable
+    private static Bitmap decode(ContentResolver resolver, Uri uri, int targetWidth, int targetHeight) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeStream(resolver, uri, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= targetWidth && options.outHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        // decoders round sampled size differently, so reusable bitmap is requested for rounded up size
+        options.inBitmap = POOL.get(
+                (options.outWidth + sampleSize - 1) / sampleSize,
+                (options.outHeight + sampleSize - 1) / sampleSize,
+                Bitmap.Config.ARGB_8888
+        );
+        if (options.inBitmap != null && sampleSize > 1 && android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.KITKAT) {
+            // before KitKat bitmaps can be reused only without sampling
+            POOL.put(options.inBitmap);
+            options.inBitmap = null;
+        }
+        try {
+            return decodeStream(resolver, uri, options);
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null) {
+                throw e;
+            }
+            POOL.put(options.inBitmap);
+            options.inBitmap = null;
+            return decodeStream(resolver, uri, options);
+        }
+    }
+
+    private static Bitmap decodeStream(ContentResolver resolver, Uri uri, BitmapFactory.Options options) throws IOException {
+        InputStream stream = resolver.openInputStream(uri);
+        if (stream == null) {
+            throw new IOException("Unable to open " + uri);
+        }
+        try {
+            return BitmapFactory.decodeStream(stream, null, options);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * View that shows loaded images.
+     */
+    public interface Target {
+
+        Context getContext();
+
+        int getWidth();
+
+        int getHeight();
+
+        /**
+         * Show loaded image. Bitmap is owned by loader, target must not keep it after next call.
+         *
+         * @param bitmap image or null to clear
+         */
+        void setCoverBitmap(@Nullable Bitmap bitmap);
+    }
+
+    private static class Request implements Runnable {
+        /**
+         * Loader that waits for request, null if request is cancelled.
+         */
+        private volatile CoverLoader mLoader;
+        private final ContentResolver mResolver;
+        private final Uri mUri;
+        private final String mKey;
+        private final int mWidth;
+        private final int mHeight;
+
+        Request(CoverLoader loader, ContentResolver resolver, Uri uri, String key, int width, int height) {
+            mLoader = loader;
+            mResolver = resolver;
+            mUri = uri;
+            mKey = key;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public void run() {
+            if (mLoader == null) {
+                return;
+            }
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            Bitmap bitmap = null;
+            try {
+                bitmap = decode(mResolver, mUri, mWidth, mHeight);
+            } catch (IOException | SecurityException | OutOfMemoryError e) {
+                Log.w(TAG, "Unable to decode " + mUri, e);
+            }
+            final Bitmap result = bitmap;
+            MAIN_HANDLER.post(new Runnable() {
+                @Override
+                public void run() {
+                    CoverLoader loader = mLoader;
+                    if (loader == null) {
+                        POOL.put(result);
+                        return;
+                    }
+                    loader.onRequestFinished(Request.this, result);
+                }
+            });
+        }
+    }
+}
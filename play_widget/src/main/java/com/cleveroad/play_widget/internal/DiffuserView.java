@@ -6,9 +6,13 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.AttributeSet;
+import android.view.View;
 import android.widget.ImageView;
 
 public class DiffuserView extends ImageView {
@@ -19,6 +23,9 @@ public class DiffuserView extends ImageView {
     private final RectF mRect = new RectF();
     private boolean mMustDrawRevealAnimation = false;
     private int mShadowSize = 0;
+    private View mHostView;
+    private MorphOutline mMorphOutline;
+    private boolean mClipToMorphOutline = false;
 
     public DiffuserView(Context context) {
         this(context, null);
@@ -46,8 +53,48 @@ public class DiffuserView extends ImageView {
         mPaint.setAntiAlias(true);
     }
 
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
     public void setShadowSize(int shadowSize) {
         mShadowSize = shadowSize;
+        if (mMorphOutline != null) {
+            mMorphOutline.setInset(shadowSize);
+        }
+    }
+
+    /**
+     * @return outline of diffuser circle, it morphs with dismiss animation while view is clipped by it
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public MorphOutline getMorphOutline() {
+        if (mMorphOutline == null) {
+            mMorphOutline = new MorphOutline(this);
+            mMorphOutline.setInset(mShadowSize);
+        }
+        return mMorphOutline;
+    }
+
+    /**
+     * Clip view by {@link #getMorphOutline()}. Radius changes then only update outline and don't redraw view.
+     * Background is clipped too, so it must not draw outside of diffuser circle. Caller sets outline provider.
+     *
+     * @param clip true to clip view by outline
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public void setClipToMorphOutline(boolean clip) {
+        if (mClipToMorphOutline == clip) {
+            return;
+        }
+        mClipToMorphOutline = clip;
+        updateMorphOutline();
+        setClipToOutline(clip);
+        invalidate();
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void updateMorphOutline() {
+        if (mClipToMorphOutline) {
+            mMorphOutline.setCornerRadiusPercentage(mDismissAnimation ? mRadiusPercentage : 1.0f);
+        }
     }
 
     public void setColor(int color) {
@@ -58,37 +105,80 @@ public class DiffuserView extends ImageView {
         return mPaint.getColor();
     }
 
+    /**
+     * Set view that draws this view instead of parent. Invalidation of this view is forwarded to host.
+     *
+     * @param hostView host view or null if view is drawn by parent
+     */
+    public void setHostView(@Nullable View hostView) {
+        mHostView = hostView;
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        if (mHostView != null) {
+            mHostView.invalidate();
+        }
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable dr) {
+        super.invalidateDrawable(dr);
+        if (mHostView != null) {
+            mHostView.invalidate();
+        }
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         if (!mMustDrawRevealAnimation) {
             super.onDraw(canvas);
             return;
         }
-        mRect.set(mShadowSize, mShadowSize, getWidth() - mShadowSize, getWidth() - mShadowSize);
-        if (canvas.getHeight() < 1) {
-            return;
-        }
+        drawDiffuser(canvas, 1.0f);
+    }
 
-        float halfSize = (mRect.right - mRect.left) / 2.0f;
-        if (!mDismissAnimation) {
-            canvas.drawCircle(mRect.left + halfSize, mRect.top + halfSize, halfSize, mPaint);
+    /**
+     * Draw diffuser circle without background.
+     *
+     * @param canvas canvas translated to the view position
+     * @param alpha  alpha multiplier (0.0f - 1.0f)
+     */
+    public void drawDiffuser(Canvas canvas, float alpha) {
+        if (!mMustDrawRevealAnimation || canvas.getHeight() < 1) {
             return;
         }
-        if (mDismissAnimation) {
+        mRect.set(mShadowSize, mShadowSize, getWidth() - mShadowSize, getWidth() - mShadowSize);
+        int paintAlpha = mPaint.getAlpha();
+        if (alpha < 1.0f) {
+            mPaint.setAlpha((int) (paintAlpha * alpha));
+        }
+        float halfSize = (mRect.right - mRect.left) / 2.0f;
+        if (mClipToMorphOutline && mHostView == null) {
+            canvas.drawRect(mRect, mPaint);
+        } else if (mDismissAnimation) {
             canvas.drawRoundRect(mRect, halfSize * mRadiusPercentage, halfSize * mRadiusPercentage, mPaint);
         } else {
             canvas.drawCircle(mRect.left + halfSize, mRect.top + halfSize, halfSize, mPaint);
         }
-
+        mPaint.setAlpha(paintAlpha);
     }
 
     public void setRadiusPercentage(float radiusPercentage) {
         this.mRadiusPercentage = radiusPercentage;
-        invalidate();
+        if (mClipToMorphOutline) {
+            updateMorphOutline();
+        } else {
+            invalidate();
+        }
     }
 
     public void setDismissAnimation(boolean dismissAnimation) {
         this.mDismissAnimation = dismissAnimation;
+        if (mClipToMorphOutline) {
+            updateMorphOutline();
+        }
     }
 
     public void setMustDrawRevealAnimation(boolean mustDrawRevealAnimation) {
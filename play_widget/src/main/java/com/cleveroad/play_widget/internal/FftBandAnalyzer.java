@@ -0,0 +1,162 @@
+package com.cleveroad.play_widget.internal;
+
+/**
+ * Splits FFT data captured by Visualizer into logarithmically spaced frequency bands
+ * and calculates smoothed dB levels (0.0f - 1.0f) for every band. Bands are grouped into several ranges
+ * with average level for each range.<br/><br/>
+ * Doesn't allocate memory after creation. Not thread safe.
+ */
+public class FftBandAnalyzer {
+
+    /**
+     * Maximum value of dB. Used for controlling wave height percentage.
+     */
+    private static final float MAX_DB_VALUE = 45;
+
+    private static final float MIN_FREQUENCY = 60;
+    private static final float MAX_FREQUENCY = 6000;
+
+    /**
+     * Maximum square magnitude of FFT bin. Real and imaginary parts are signed bytes.
+     */
+    private static final int MAX_SQUARE_MAGNITUDE = 128 * 128 * 2;
+
+    /**
+     * dB percentages (0.0f - 1.0f) for each square magnitude. Shared between all instances.
+     */
+    private static final float[] DB_PERCENTAGES = new float[MAX_SQUARE_MAGNITUDE + 1];
+
+    static {
+        for (int i = 1; i < DB_PERCENTAGES.length; i++) {
+            float dbs = (float) (10 * Math.log10(i));
+            DB_PERCENTAGES[i] = Math.min(1.0f, dbs / MAX_DB_VALUE);
+        }
+    }
+
+    private static final float FILTRATION_ALPHA = 0.55f;
+    private static final float FILTRATION_BETA = 1 - FILTRATION_ALPHA;
+
+    private final float[] mBandFrequencies;
+    private final int[] mBandStartBins;
+    private final int[] mBandEndBins;
+    private final float[] mBandLevels;
+    private final int[] mGroupStartBands;
+    private final int[] mGroupEndBands;
+    private final float[] mGroupLevels;
+    private int mBinsCaptureSize;
+    private int mBinsSamplingRate;
+
+    /**
+     * @param bandsCount  count of frequency bands
+     * @param groupsCount count of ranges bands are grouped into
+     */
+    public FftBandAnalyzer(int bandsCount, int groupsCount) {
+        if (bandsCount < 1 || groupsCount < 1) {
+            throw new IllegalArgumentException("Bands and groups count must be positive");
+        }
+        mBandFrequencies = new float[bandsCount + 1];
+        mBandStartBins = new int[bandsCount];
+        mBandEndBins = new int[bandsCount];
+        mBandLevels = new float[bandsCount];
+        mGroupStartBands = new int[groupsCount];
+        mGroupEndBands = new int[groupsCount];
+        mGroupLevels = new float[groupsCount];
+        for (int i = 0; i <= bandsCount; i++) {
+            mBandFrequencies[i] = (float) (MIN_FREQUENCY * Math.pow(MAX_FREQUENCY / MIN_FREQUENCY, (float) i / bandsCount));
+        }
+        for (int i = 0; i < groupsCount; i++) {
+            int start = Math.min(bandsCount - 1, i * bandsCount / groupsCount);
+            mGroupStartBands[i] = start;
+            mGroupEndBands[i] = Math.max(start + 1, (i + 1) * bandsCount / groupsCount);
+        }
+    }
+
+    /**
+     * Analyze FFT frame and update band and group levels.
+     *
+     * @param fft          FFT data
+     * @param length       count of valid bytes in data
+     * @param samplingRate sampling rate in milliHertz
+     */
+    public void analyze(byte[] fft, int length, int samplingRate) {
+        if (length != mBinsCaptureSize || samplingRate != mBinsSamplingRate) {
+            calculateBins(length, samplingRate);
+        }
+        for (int i = 0; i < mBandLevels.length; i++) {
+            int start = mBandStartBins[i];
+            int end = mBandEndBins[i];
+            int magnitudeSquareSum = 0;
+            for (int bin = start; bin < end; bin++) {
+                int real = fft[2 * bin];
+                int imag = fft[2 * bin + 1];
+                magnitudeSquareSum += real * real + imag * imag;
+            }
+            float dbPercentage = DB_PERCENTAGES[magnitudeSquareSum / (end - start)];
+            mBandLevels[i] = mBandLevels[i] * FILTRATION_ALPHA + dbPercentage * FILTRATION_BETA;
+        }
+        for (int i = 0; i < mGroupLevels.length; i++) {
+            float sum = 0;
+            for (int band = mGroupStartBands[i]; band < mGroupEndBands[i]; band++) {
+                sum += mBandLevels[band];
+            }
+            mGroupLevels[i] = sum / (mGroupEndBands[i] - mGroupStartBands[i]);
+        }
+    }
+
+    public int getBandsCount() {
+        return mBandLevels.length;
+    }
+
+    /**
+     * Copy current levels of frequency bands.
+     *
+     * @param levels array with length at least {@link #getBandsCount()} for levels (0.0f - 1.0f)
+     */
+    public void getBandLevels(float[] levels) {
+        System.arraycopy(mBandLevels, 0, levels, 0, mBandLevels.length);
+    }
+
+    /**
+     * @param band index of band
+     * @return current level of band (0.0f - 1.0f)
+     */
+    public float getBandLevel(int band) {
+        return mBandLevels[band];
+    }
+
+    public int getGroupsCount() {
+        return mGroupLevels.length;
+    }
+
+    /**
+     * @param group index of group
+     * @return average level of bands in group (0.0f - 1.0f)
+     */
+    public float getGroupLevel(int group) {
+        return mGroupLevels[group];
+    }
+
+    /**
+     * Calculate bin ranges for all bands.
+     *
+     * @param captureSize  size of FFT data in bytes
+     * @param samplingRate sampling rate in milliHertz
+     */
+    private void calculateBins(int captureSize, int samplingRate) {
+        mBinsCaptureSize = captureSize;
+        mBinsSamplingRate = samplingRate;
+        // fft[0] and fft[1] hold DC and Nyquist real parts, complex bins are 1 .. captureSize / 2 - 1
+        int maxBin = Math.max(1, captureSize / 2 - 1);
+        float binWidth = samplingRate / 1000.0f / captureSize;
+        for (int i = 0; i < mBandLevels.length; i++) {
+            int start = clamp(Math.round(mBandFrequencies[i] / binWidth), 1, maxBin);
+            int end = clamp(Math.round(mBandFrequencies[i + 1] / binWidth), 1, maxBin + 1);
+            mBandStartBins[i] = start;
+            mBandEndBins[i] = Math.max(start + 1, end);
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.min(max, Math.max(min, value));
+    }
+}
@@ -0,0 +1,103 @@
+package com.cleveroad.play_widget.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single producer single consumer ring of preallocated FFT frames.<br/><br/>
+ * Producer copies captured data with {@link #offer(byte[], int)}. Consumer takes only the latest frame
+ * with {@link #acquireLatest()}, all older frames are skipped, and returns slot with {@link #release()}.
+ * When ring is full new frames are dropped until consumer releases slots.
+ */
+public class FftRingBuffer {
+
+    private final byte[][] mFrames;
+    private final int[] mLengths;
+    private final int[] mSamplingRates;
+    private final int mMask;
+
+    /**
+     * Index of next frame to read. Written only by consumer.
+     */
+    private final AtomicLong mHead = new AtomicLong(0);
+    /**
+     * Index of next frame to write. Written only by producer.
+     */
+    private final AtomicLong mTail = new AtomicLong(0);
+    /**
+     * Tail observed by consumer in last {@link #acquireLatest()}. Used only by consumer.
+     */
+    private long mAcquiredTail = -1;
+
+    /**
+     * @param capacity  count of frames, must be power of two
+     * @param frameSize maximum size of one frame in bytes
+     */
+    public FftRingBuffer(int capacity, int frameSize) {
+        if (capacity < 1 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("Capacity must be power of two");
+        }
+        mFrames = new byte[capacity][frameSize];
+        mLengths = new int[capacity];
+        mSamplingRates = new int[capacity];
+        mMask = capacity - 1;
+    }
+
+    /**
+     * Copy frame into ring. Must be called only from producer thread.
+     *
+     * @param data         FFT data
+     * @param samplingRate sampling rate of data
+     * @return true if frame was added, false if ring is full and frame was dropped
+     */
+    public boolean offer(byte[] data, int samplingRate) {
+        long tail = mTail.get();
+        if (tail - mHead.get() > mMask) {
+            return false;
+        }
+        int slot = (int) (tail & mMask);
+        int length = Math.min(data.length, mFrames[slot].length);
+        System.arraycopy(data, 0, mFrames[slot], 0, length);
+        mLengths[slot] = length;
+        mSamplingRates[slot] = samplingRate;
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Get slot of the latest frame. Must be called only from consumer thread.
+     * Slot stays valid until {@link #release()}.
+     *
+     * @return slot of the latest frame or -1 if ring is empty
+     */
+    public int acquireLatest() {
+        long tail = mTail.get();
+        if (tail == mHead.get()) {
+            return -1;
+        }
+        mAcquiredTail = tail;
+        return (int) ((tail - 1) & mMask);
+    }
+
+    /**
+     * Release acquired frame and all skipped frames. Must be called only from consumer thread.
+     */
+    public void release() {
+        if (mAcquiredTail < 0) {
+            return;
+        }
+        mHead.lazySet(mAcquiredTail);
+        mAcquiredTail = -1;
+    }
+
+    public byte[] getData(int slot) {
+        return mFrames[slot];
+    }
+
+    public int getLength(int slot) {
+        return mLengths[slot];
+    }
+
+    public int getSamplingRate(int slot) {
+        return mSamplingRates[slot];
+    }
+}
@@ -0,0 +1,134 @@
+package com.cleveroad.play_widget.internal;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Schedules callback on main thread on next display frame. Uses {@link Choreographer} on API 16+
+ * and handler with fixed frame delay on older APIs.<br/><br/>
+ * {@link #schedule()} can be called from any thread any number of times,
+ * callback will be called only once per frame.
+ */
+public abstract class FrameScheduler {
+
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Callback mCallback;
+    private final AtomicBoolean mScheduled = new AtomicBoolean(false);
+
+    FrameScheduler(@NonNull Callback callback) {
+        mCallback = callback;
+    }
+
+    public static FrameScheduler create(@NonNull Callback callback) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return new ChoreographerFrameScheduler(callback);
+        }
+        return new HandlerFrameScheduler(callback);
+    }
+
+    /**
+     * Request callback on next frame. Thread safe.
+     */
+    public void schedule() {
+        if (mScheduled.compareAndSet(false, true)) {
+            scheduleInner();
+        }
+    }
+
+    /**
+     * Cancel scheduled callback. Must be called on main thread.
+     */
+    public void cancel() {
+        cancelInner();
+        mScheduled.set(false);
+    }
+
+    void dispatchFrame(long frameTimeNanos) {
+        mScheduled.set(false);
+        mCallback.doFrame(frameTimeNanos);
+    }
+
+    abstract void scheduleInner();
+
+    abstract void cancelInner();
+
+    /**
+     * Callback that will be called on main thread.
+     */
+    public interface Callback {
+        /**
+         * @param frameTimeNanos time in nanoseconds when frame started rendering
+         */
+        void doFrame(long frameTimeNanos);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameScheduler extends FrameScheduler implements Choreographer.FrameCallback, Runnable {
+
+        private Choreographer mChoreographer;
+
+        ChoreographerFrameScheduler(@NonNull Callback callback) {
+            super(callback);
+        }
+
+        @Override
+        void scheduleInner() {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                run();
+            } else {
+                mMainHandler.post(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (mChoreographer == null) {
+                mChoreographer = Choreographer.getInstance();
+            }
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            dispatchFrame(frameTimeNanos);
+        }
+
+        @Override
+        void cancelInner() {
+            mMainHandler.removeCallbacks(this);
+            if (mChoreographer != null) {
+                mChoreographer.removeFrameCallback(this);
+            }
+        }
+    }
+
+    private static class HandlerFrameScheduler extends FrameScheduler implements Runnable {
+
+        HandlerFrameScheduler(@NonNull Callback callback) {
+            super(callback);
+        }
+
+        @Override
+        void scheduleInner() {
+            mMainHandler.postDelayed(this, FALLBACK_FRAME_DELAY);
+        }
+
+        @Override
+        public void run() {
+            dispatchFrame(System.nanoTime());
+        }
+
+        @Override
+        void cancelInner() {
+            mMainHandler.removeCallbacks(this);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.cleveroad.play_widget.internal;
+
+import android.annotation.TargetApi;
+import android.graphics.Outline;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+
+/**
+ * Outline of diffuser that morphs from square to circle.<br/><br/>
+ * Outline is a round rect inset from view bounds, its corner radius is part of half size.
+ * View clipped to outline or casting shadow from it is updated by RenderThread when outline changes,
+ * without redrawing view.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class MorphOutline extends ViewOutlineProvider {
+
+    private final View mView;
+    private float mInset;
+    private float mCornerRadiusPercentage = 1.0f;
+    private float mAlpha = 1.0f;
+
+    public MorphOutline(@NonNull View view) {
+        mView = view;
+    }
+
+    /**
+     * @param inset inset of outline from each side of view
+     */
+    public void setInset(float inset) {
+        if (mInset != inset) {
+            mInset = inset;
+            mView.invalidateOutline();
+        }
+    }
+
+    /**
+     * @param cornerRadiusPercentage corner radius as part of half size, 0.0f is square and 1.0f is circle
+     */
+    public void setCornerRadiusPercentage(float cornerRadiusPercentage) {
+        if (mCornerRadiusPercentage != cornerRadiusPercentage) {
+            mCornerRadiusPercentage = cornerRadiusPercentage;
+            mView.invalidateOutline();
+        }
+    }
+
+    /**
+     * @param alpha alpha of outline used for shadow (0.0f - 1.0f)
+     */
+    public void setAlpha(float alpha) {
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            mView.invalidateOutline();
+        }
+    }
+
+    @Override
+    public void getOutline(View view, Outline outline) {
+        int inset = Math.round(mInset);
+        int size = Math.min(view.getWidth(), view.getHeight()) - inset * 2;
+        if (size <= 0) {
+            outline.setEmpty();
+            return;
+        }
+        outline.setRoundRect(inset, inset, inset + size, inset + size, size / 2.0f * mCornerRadiusPercentage);
+        outline.setAlpha(mAlpha);
+    }
+}
@@ -0,0 +1,95 @@
+package com.cleveroad.play_widget.internal;
+
+/**
+ * Angle math of progress curve. Progress is drawn from {@link #BEGIN_PROGRESS_DEGREE}
+ * to {@link #END_PROGRESS_DEGREE} clockwise and quantized with {@link #PROGRESS_ANGLE_STEP}.
+ */
+public class ProgressGeometry {
+
+    private static final int ADDITIONAL_PROGRESS_DEGREE = 20;
+    public static final float BEGIN_PROGRESS_DEGREE = 180 - ADDITIONAL_PROGRESS_DEGREE;
+    public static final float END_PROGRESS_DEGREE = 360 + ADDITIONAL_PROGRESS_DEGREE;
+    /**
+     * Angular resolution of progress. Progress is drawn and invalidated only when quantized angle changes.
+     */
+    public static final float PROGRESS_ANGLE_STEP = 0.1f;
+    public static final int PROGRESS_ANGLE_STEPS = Math.round((END_PROGRESS_DEGREE - BEGIN_PROGRESS_DEGREE) / PROGRESS_ANGLE_STEP);
+    /**
+     * Indexes of quantized angles 180, 270 and 360 degrees, where progress curve has extreme points.
+     */
+    private static final int[] EXTREME_ANGLE_INDEXES = new int[]{
+            Math.round((180 - BEGIN_PROGRESS_DEGREE) / PROGRESS_ANGLE_STEP),
+            Math.round((270 - BEGIN_PROGRESS_DEGREE) / PROGRESS_ANGLE_STEP),
+            Math.round((360 - BEGIN_PROGRESS_DEGREE) / PROGRESS_ANGLE_STEP),
+    };
+
+    private ProgressGeometry() {
+        //no instance
+    }
+
+    /**
+     * @param progress progress (0.0f - 1.0f)
+     * @return index of quantized angle, from 0 to {@link #PROGRESS_ANGLE_STEPS}
+     */
+    public static int getAngleIndex(float progress) {
+        return Math.round(progress * PROGRESS_ANGLE_STEPS);
+    }
+
+    public static int getExtremeAngleIndexesCount() {
+        return EXTREME_ANGLE_INDEXES.length;
+    }
+
+    public static int getExtremeAngleIndex(int i) {
+        return EXTREME_ANGLE_INDEXES[i];
+    }
+
+    /**
+     * Calculate angle of touch point in degrees of progress curve: from 90 to 450 clockwise starting from top.
+     *
+     * @param xCenterOffset horizontal offset of touch point from center
+     * @param yCenterOffset vertical offset of touch point from center, positive to top
+     * @return angle in degrees
+     */
+    public static double getTouchAngle(float xCenterOffset, float yCenterOffset) {
+        double tanAngle = Math.atan2(yCenterOffset, xCenterOffset) * 180.0 / Math.PI;
+        if (tanAngle < 0) {
+            tanAngle *= -1;
+        } else {
+            tanAngle = 360 - tanAngle;
+        }
+        if (tanAngle < 90) {
+            tanAngle += 360;
+        }
+        return tanAngle;
+    }
+
+    /**
+     * @param angle angle in degrees from {@link #getTouchAngle(float, float)}
+     * @return progress (0.0f - 1.0f) for angle, angles outside of progress curve are clamped
+     */
+    public static float getProgress(double angle) {
+        double progressAngle = angle - BEGIN_PROGRESS_DEGREE;
+        if (angle < BEGIN_PROGRESS_DEGREE) {
+            progressAngle = 0.0;
+        } else if (angle > END_PROGRESS_DEGREE) {
+            progressAngle = END_PROGRESS_DEGREE - BEGIN_PROGRESS_DEGREE;
+        }
+        return (float) (progressAngle / (END_PROGRESS_DEGREE - BEGIN_PROGRESS_DEGREE));
+    }
+
+    /**
+     * Fill coordinates of points on progress curve for every quantized angle.
+     *
+     * @param radius radius of progress curve
+     * @param offset coordinate of curve center on both axes
+     * @param xs     array with length at least {@link #PROGRESS_ANGLE_STEPS} + 1 for x coordinates
+     * @param ys     array with length at least {@link #PROGRESS_ANGLE_STEPS} + 1 for y coordinates
+     */
+    public static void buildPoints(float radius, float offset, float[] xs, float[] ys) {
+        for (int i = 0; i <= PROGRESS_ANGLE_STEPS; i++) {
+            double angle = Math.toRadians(BEGIN_PROGRESS_DEGREE + i * PROGRESS_ANGLE_STEP);
+            xs[i] = offset + (float) (radius * Math.cos(angle));
+            ys[i] = offset + (float) (radius * Math.sin(angle));
+        }
+    }
+}
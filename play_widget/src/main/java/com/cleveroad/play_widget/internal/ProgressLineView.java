@@ -6,13 +6,16 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.PointF;
+import android.graphics.Rect;
 import android.graphics.RectF;
 import android.os.Build;
+import android.os.SystemClock;
 import android.support.annotation.ColorInt;
 import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.View;
 import android.widget.ImageView;
 
 import com.cleveroad.play_widget.PlayLayout;
@@ -20,9 +23,11 @@ import com.cleveroad.play_widget.R;
 
 public class ProgressLineView extends ImageView {
 
-    private static final int ADDITIONAL_PROGRESS_DEGREE = 20;
-    private static final float BEGIN_PROGRESS_DEGREE = 180 - ADDITIONAL_PROGRESS_DEGREE;
-    private static final float END_PROGRESS_DEGREE = 360 + ADDITIONAL_PROGRESS_DEGREE;
+    private static final float BEGIN_PROGRESS_DEGREE = ProgressGeometry.BEGIN_PROGRESS_DEGREE;
+    private static final float END_PROGRESS_DEGREE = ProgressGeometry.END_PROGRESS_DEGREE;
+    private static final float PROGRESS_ANGLE_STEP = ProgressGeometry.PROGRESS_ANGLE_STEP;
+    private static final int PROGRESS_ANGLE_STEPS = ProgressGeometry.PROGRESS_ANGLE_STEPS;
+    private static final long INVALIDATION_STATS_WINDOW = 1000;
     private float mProgressCompleteLineStrokeWidth = 20;
     private float mProgressLineStrokeWidth = 16;
     private float mProgressBallRadius = 20;
@@ -42,6 +47,26 @@ public class ProgressLineView extends ImageView {
     private boolean mHandledTouch = false;
     private PlayLayout.OnProgressChangedListener mProgressChangedListener;
 
+    private int mDrawnAngleIndex = -1;
+    private int mInvalidatedAngleIndex = -1;
+    private final Rect mDirtyRect = new Rect();
+    private final RectF mDirtyRectF = new RectF();
+
+    /**
+     * Coordinates of points on progress curve for every quantized angle. Rebuilt only when geometry changes.
+     */
+    private final float[] mProgressPointsX = new float[PROGRESS_ANGLE_STEPS + 1];
+    private final float[] mProgressPointsY = new float[PROGRESS_ANGLE_STEPS + 1];
+    private float mProgressPointsRadius = -1;
+    private float mProgressPointsOffset = -1;
+
+    private View mHostView;
+
+    private PlayLayout.OnProgressInvalidationListener mInvalidationListener;
+    private long mInvalidationStatsStart;
+    private long mInvalidatedPixels;
+    private long mViewPixels;
+
     public ProgressLineView(Context context) {
         this(context, null);
     }
@@ -91,6 +116,7 @@ public class ProgressLineView extends ImageView {
     public void setProgress(float progress) {
         if (!mHandledTouch) {
             mProgress = Utils.betweenZeroOne(progress);
+            invalidateProgress();
         }
     }
 
@@ -108,6 +134,74 @@ public class ProgressLineView extends ImageView {
                 getWidth() - mProgressBallRadius - mPadding
         );
         mProgressCurveRadius = (mRect.right - mRect.left) / 2.0f;
+        float offset = mProgressCurveRadius + mProgressBallRadius + mPadding;
+        if (mProgressPointsRadius == mProgressCurveRadius && mProgressPointsOffset == offset) {
+            return;
+        }
+        mProgressPointsRadius = mProgressCurveRadius;
+        mProgressPointsOffset = offset;
+        ProgressGeometry.buildPoints(mProgressCurveRadius, offset, mProgressPointsX, mProgressPointsY);
+        mInvalidatedAngleIndex = -1;
+        mDrawnAngleIndex = -1;
+    }
+
+    /**
+     * Invalidate only region between drawn and current progress: old and new ball bounds and changed arc segment.
+     * Nothing is invalidated if quantized angle of progress is not changed.
+     */
+    private void invalidateProgress() {
+        int angleIndex = ProgressGeometry.getAngleIndex(mProgress);
+        if (angleIndex == mInvalidatedAngleIndex) {
+            return;
+        }
+        mInvalidatedAngleIndex = angleIndex;
+        if (mDrawnAngleIndex < 0 || getWidth() == 0) {
+            invalidate();
+            trackInvalidation(getWidth() * getHeight());
+            return;
+        }
+        int fromIndex = Math.min(mDrawnAngleIndex, angleIndex);
+        int toIndex = Math.max(mDrawnAngleIndex, angleIndex);
+        mDirtyRectF.set(mProgressPointsX[fromIndex], mProgressPointsY[fromIndex], mProgressPointsX[fromIndex], mProgressPointsY[fromIndex]);
+        mDirtyRectF.union(mProgressPointsX[toIndex], mProgressPointsY[toIndex]);
+        // extreme points of arc between angles
+        for (int i = 0; i < ProgressGeometry.getExtremeAngleIndexesCount(); i++) {
+            int index = ProgressGeometry.getExtremeAngleIndex(i);
+            if (index > fromIndex && index < toIndex) {
+                mDirtyRectF.union(mProgressPointsX[index], mProgressPointsY[index]);
+            }
+        }
+        // ball is not thinner than progress lines, so ball radius covers strokes too
+        mDirtyRectF.inset(-mProgressBallRadius, -mProgressBallRadius);
+        mDirtyRectF.roundOut(mDirtyRect);
+        mDirtyRect.inset(-1, -1);
+        //noinspection deprecation
+        invalidate(mDirtyRect);
+        if (mHostView != null) {
+            mDirtyRect.offset(getLeft() - mHostView.getLeft(), getTop() - mHostView.getTop());
+            //noinspection deprecation
+            mHostView.invalidate(mDirtyRect);
+        }
+        trackInvalidation(mDirtyRect.width() * mDirtyRect.height());
+    }
+
+    private void trackInvalidation(long pixels) {
+        if (mInvalidationListener == null) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        if (mInvalidationStatsStart == 0) {
+            mInvalidationStatsStart = now;
+        }
+        mInvalidatedPixels += pixels;
+        mViewPixels += getWidth() * getHeight();
+        long elapsed = now - mInvalidationStatsStart;
+        if (elapsed >= INVALIDATION_STATS_WINDOW) {
+            mInvalidationListener.onProgressInvalidated(mInvalidatedPixels * 1000 / elapsed, mViewPixels * 1000 / elapsed);
+            mInvalidationStatsStart = now;
+            mInvalidatedPixels = 0;
+            mViewPixels = 0;
+        }
     }
 
     @Override
@@ -116,16 +210,7 @@ public class ProgressLineView extends ImageView {
         float x_center_offset = event.getX() - halfSize;
         float y_center_offset = halfSize - event.getY();
         double touchPointDistanceToCenter = Math.sqrt(y_center_offset * y_center_offset + x_center_offset * x_center_offset);
-        double tanAngle = Math.atan2(y_center_offset, x_center_offset) * 180.0 / Math.PI;
-
-        if (tanAngle < 0) {
-            tanAngle *= -1;
-        } else {
-            tanAngle = 360 - tanAngle;
-        }
-        if (tanAngle < 90) {
-            tanAngle += 360;
-        }
+        double tanAngle = ProgressGeometry.getTouchAngle(x_center_offset, y_center_offset);
 
         if (event.getAction() == MotionEvent.ACTION_DOWN) {
             if (mProgressChangedListener != null) {
@@ -150,31 +235,67 @@ public class ProgressLineView extends ImageView {
         float radius = mProgressCurveRadius;
         if (mHandledTouch || (touchPointDistanceToCenter > radius - mAllowedTouchRadius && touchPointDistanceToCenter < radius + mAllowedTouchRadius)) {
 
-            double progressAngle = tanAngle - BEGIN_PROGRESS_DEGREE;
-            if (tanAngle < BEGIN_PROGRESS_DEGREE) {
-                progressAngle = 0.0;
-            } else if (tanAngle > END_PROGRESS_DEGREE) {
-                progressAngle = END_PROGRESS_DEGREE - BEGIN_PROGRESS_DEGREE;
-            }
-            mProgress = (float) (progressAngle / (END_PROGRESS_DEGREE - BEGIN_PROGRESS_DEGREE));
+            mProgress = ProgressGeometry.getProgress(tanAngle);
             mHandledTouch = true;
-            invalidate();
+            invalidateProgress();
             return true;
         }
         return super.onTouchEvent(event);
     }
 
+    /**
+     * Set view that draws this view instead of parent. Invalidation of this view is forwarded to host.
+     *
+     * @param hostView host view or null if view is drawn by parent
+     */
+    public void setHostView(@Nullable View hostView) {
+        mHostView = hostView;
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        if (mHostView != null) {
+            mHostView.invalidate();
+        }
+    }
+
+    @Override
+    public void setAlpha(float alpha) {
+        super.setAlpha(alpha);
+        if (mHostView != null) {
+            mHostView.invalidate();
+        }
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
 //        super.onDraw(canvas);
-        float fullProgressDegree = (180.0f + ADDITIONAL_PROGRESS_DEGREE * 2) * mProgress;
+        drawProgress(canvas, 1.0f);
+    }
+
+    /**
+     * Draw progress line, complete line and ball.
+     *
+     * @param canvas canvas translated to the view position
+     * @param alpha  alpha multiplier (0.0f - 1.0f)
+     */
+    public void drawProgress(Canvas canvas, float alpha) {
+        int lineAlpha = mLinePaint.getAlpha();
+        int progressAlpha = mProgressPaint.getAlpha();
+        int ballAlpha = mProgressBallPaint.getAlpha();
+        if (alpha < 1.0f) {
+            mLinePaint.setAlpha((int) (lineAlpha * alpha));
+            mProgressPaint.setAlpha((int) (progressAlpha * alpha));
+            mProgressBallPaint.setAlpha((int) (ballAlpha * alpha));
+        }
+        mDrawnAngleIndex = ProgressGeometry.getAngleIndex(mProgress);
+        float fullProgressDegree = mDrawnAngleIndex * PROGRESS_ANGLE_STEP;
         if (fullProgressDegree>0.05f) {
             canvas.drawArc(mRect, BEGIN_PROGRESS_DEGREE, fullProgressDegree, false, mProgressPaint);
         }
         float ballPositionAngle = BEGIN_PROGRESS_DEGREE + fullProgressDegree;
-        float progressBalX = mProgressCurveRadius + mProgressBallRadius + mPadding + (float) (mProgressCurveRadius * Math.cos(ballPositionAngle * Math.PI / 180.0f));
-        float progressBalY = mProgressCurveRadius + mProgressBallRadius + mPadding + (float) (mProgressCurveRadius * Math.sin(ballPositionAngle * Math.PI / 180.0f));
-        mProgressPointCenter.set(progressBalX, progressBalY);
+        mProgressPointCenter.set(mProgressPointsX[mDrawnAngleIndex], mProgressPointsY[mDrawnAngleIndex]);
 
         mProgressBallRectF.set(
                 mProgressPointCenter.x - mProgressBallRadius,
@@ -184,6 +305,9 @@ public class ProgressLineView extends ImageView {
         );
         canvas.drawArc(mRect, ballPositionAngle, END_PROGRESS_DEGREE - ballPositionAngle, false, mLinePaint);
         canvas.drawCircle(mProgressPointCenter.x, mProgressPointCenter.y, mProgressBallRadius, mProgressBallPaint);
+        mLinePaint.setAlpha(lineAlpha);
+        mProgressPaint.setAlpha(progressAlpha);
+        mProgressBallPaint.setAlpha(ballAlpha);
     }
 
 
@@ -275,4 +399,16 @@ public class ProgressLineView extends ImageView {
     public void setOnProgressChangedListener(@Nullable PlayLayout.OnProgressChangedListener progressChangedListener) {
         mProgressChangedListener = progressChangedListener;
     }
+
+    /**
+     * Set listener for invalidation statistics.
+     *
+     * @param invalidationListener PlayLayout.OnProgressInvalidationListener listener for statistics;
+     */
+    public void setOnProgressInvalidationListener(@Nullable PlayLayout.OnProgressInvalidationListener invalidationListener) {
+        mInvalidationListener = invalidationListener;
+        mInvalidationStatsStart = 0;
+        mInvalidatedPixels = 0;
+        mViewPixels = 0;
+    }
 }
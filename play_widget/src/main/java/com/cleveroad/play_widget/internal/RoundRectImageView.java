@@ -3,35 +3,77 @@ package com.cleveroad.play_widget.internal;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
+import android.graphics.RadialGradient;
 import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Build;
 import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
+import android.view.ViewOutlineProvider;
 import android.widget.ImageView;
 
-public class RoundRectImageView extends ImageView {
+public class RoundRectImageView extends ImageView implements CoverLoader.Target {
+
+    /**
+     * Image is clipped by compositing a round rect mask over a hardware layer on every frame.
+     */
+    public static final int RENDER_MODE_MASK = 0;
+
+    /**
+     * Image is rendered once into a cached bitmap and drawn through a {@link BitmapShader}.
+     */
+    public static final int RENDER_MODE_SHADER = 1;
+
+    /**
+     * Image is drawn once and clipped by round rect outline of view. Corner radius changes only update outline,
+     * so morph is done by RenderThread without recording image again. Requires API 21+,
+     * on older versions {@link #RENDER_MODE_SHADER} is used instead.
+     */
+    public static final int RENDER_MODE_OUTLINE = 2;
+
+    /**
+     * Radius of the unit reveal gradient. Gradient is scaled with local matrix to the real reveal radius.
+     */
+    private static final float REVEAL_GRADIENT_RADIUS = 256.0f;
+    private static final float REVEAL_GRADIENT_EDGE = 0.98f;
 
     private Paint mPaint;
     private Paint mMaskPaint;
     private Paint mCirclePaint;
+    private Paint mContentPaint;
+    private Paint mRevealPaint;
     private
     @ColorInt
     int mColor;
     private Bitmap mAnimationMaskBitmap;
     private Canvas mAnimationMaskCanvas;
+    private Bitmap mContentBitmap;
+    private Canvas mContentCanvas;
+    private boolean mContentDirty = true;
+    private final Matrix mRevealMatrix = new Matrix();
     private float mRadiusPercentage = 0.0f;
     private int mColorAlpha;
     private boolean mRevealAnimation = false;
     private boolean mDismissAnimation = false;
     private RectF mRectF = new RectF();
     private int mSize;
+    private int mRenderMode = RENDER_MODE_SHADER;
+    private View mHostView;
+    private CoverLoader mCoverLoader;
+    private MorphOutline mMorphOutline;
 
     public RoundRectImageView(Context context) {
         this(context, null);
@@ -54,8 +96,7 @@ public class RoundRectImageView extends ImageView {
     }
 
     private void init() {
-        //without hardware level gpu more
-        setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        mCoverLoader = new CoverLoader(this);
         mColor = Color.argb(100, 200, 50, 50);
         mCirclePaint = new Paint();
         mCirclePaint.setStyle(Paint.Style.FILL);
@@ -69,12 +110,88 @@ public class RoundRectImageView extends ImageView {
 
         mMaskPaint = new Paint();
         mMaskPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
+
+        mContentPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        mContentPaint.setStyle(Paint.Style.FILL);
+
+        mRevealPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mRevealPaint.setStyle(Paint.Style.FILL);
+        updateRevealShader();
+
+        updateLayerType();
+    }
+
+    /**
+     * Set render mode used for clipping image.
+     *
+     * @param renderMode {@link #RENDER_MODE_MASK}, {@link #RENDER_MODE_SHADER} or {@link #RENDER_MODE_OUTLINE}
+     */
+    public void setRenderMode(int renderMode) {
+        if (renderMode != RENDER_MODE_MASK && renderMode != RENDER_MODE_SHADER && renderMode != RENDER_MODE_OUTLINE) {
+            throw new IllegalArgumentException("Unknown render mode: " + renderMode);
+        }
+        if (renderMode == RENDER_MODE_OUTLINE && Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            renderMode = RENDER_MODE_SHADER;
+        }
+        if (mRenderMode == renderMode) {
+            return;
+        }
+        mRenderMode = renderMode;
+        releaseBitmaps();
+        updateLayerType();
+        updateOutlineClip();
+        requestLayout();
+        invalidate();
+    }
+
+    public int getRenderMode() {
+        return mRenderMode;
+    }
+
+    private void updateLayerType() {
+        if (mRenderMode == RENDER_MODE_MASK) {
+            //without hardware level gpu more
+            setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        } else {
+            setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void updateOutlineClip() {
+        if (mRenderMode == RENDER_MODE_OUTLINE) {
+            if (mMorphOutline == null) {
+                mMorphOutline = new MorphOutline(this);
+            }
+            mMorphOutline.setCornerRadiusPercentage(mRadiusPercentage);
+            setOutlineProvider(mMorphOutline);
+            setClipToOutline(true);
+        } else if (mMorphOutline != null) {
+            setClipToOutline(false);
+            setOutlineProvider(ViewOutlineProvider.BACKGROUND);
+        }
+    }
+
+    /**
+     * Outline doesn't clip view drawn by host, so in that case image is clipped by shader.
+     */
+    private boolean isClippedByOutline() {
+        return mRenderMode == RENDER_MODE_OUTLINE && mHostView == null;
+    }
+
+    private void updateRevealShader() {
+        int opaqueColor = Color.rgb(Color.red(mColor), Color.green(mColor), Color.blue(mColor));
+        mRevealPaint.setShader(new RadialGradient(0, 0, REVEAL_GRADIENT_RADIUS,
+                new int[]{opaqueColor, opaqueColor, Color.TRANSPARENT},
+                new float[]{0f, REVEAL_GRADIENT_EDGE, 1f},
+                Shader.TileMode.CLAMP));
     }
 
     public void setColor(@ColorInt int color) {
         mColor = color;
         mCirclePaint.setColor(color);
         mColorAlpha = Color.alpha(color);
+        updateRevealShader();
     }
 
     public
@@ -83,8 +200,141 @@ public class RoundRectImageView extends ImageView {
         return mColor;
     }
 
+    @Override
+    public void setImageDrawable(@Nullable Drawable drawable) {
+        super.setImageDrawable(drawable);
+        mContentDirty = true;
+        // ImageView sets drawable from its constructor, before loader is created
+        if (mCoverLoader != null) {
+            mCoverLoader.clear();
+        }
+    }
+
+    @Override
+    public void setImageResource(int resId) {
+        super.setImageResource(resId);
+        mContentDirty = true;
+        if (mCoverLoader != null) {
+            mCoverLoader.clear();
+        }
+    }
+
+    /**
+     * Load image asynchronously. Image is decoded on background thread and downsampled to the size of this view.
+     * Current image stays shown until new one is decoded.
+     *
+     * @param uri the Uri of an image, or null to clear the content
+     */
+    @Override
+    public void setImageURI(@Nullable Uri uri) {
+        mCoverLoader.load(uri);
+    }
+
+    /**
+     * Release image loaded by {@link #setImageURI(Uri)}. Call it when view is really gone,
+     * not when it's only detached to be drawn by host.
+     */
+    public void releaseCover() {
+        mCoverLoader.release();
+    }
+
+    /**
+     * Load image released by {@link #releaseCover()} again.
+     */
+    public void restoreCover() {
+        mCoverLoader.restore();
+    }
+
+    @Override
+    public void setCoverBitmap(@Nullable Bitmap bitmap) {
+        super.setImageDrawable(bitmap == null ? null : new BitmapDrawable(getResources(), bitmap));
+        mContentDirty = true;
+    }
+
+    @Override
+    public void setScaleType(ScaleType scaleType) {
+        super.setScaleType(scaleType);
+        mContentDirty = true;
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable dr) {
+        if (dr == getDrawable()) {
+            mContentDirty = true;
+        }
+        super.invalidateDrawable(dr);
+        if (mHostView != null) {
+            mHostView.invalidate();
+        }
+    }
+
+    /**
+     * Set view that draws this view instead of parent. Invalidation of this view is forwarded to host.
+     *
+     * @param hostView host view or null if view is drawn by parent
+     */
+    public void setHostView(@Nullable View hostView) {
+        mHostView = hostView;
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        if (mHostView != null) {
+            mHostView.invalidate();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mContentDirty = true;
+        mCoverLoader.onTargetSizeChanged();
+    }
+
     @Override
     public void onDraw(Canvas canvas) {
+        drawImage(canvas);
+    }
+
+    /**
+     * Draw image and reveal circle. In {@link #RENDER_MODE_MASK} canvas must have offscreen layer
+     * because mask is composited with DST_IN.
+     *
+     * @param canvas canvas translated to the view position
+     */
+    public void drawImage(Canvas canvas) {
+        if (isClippedByOutline()) {
+            drawWithOutline(canvas);
+        } else if (mRenderMode == RENDER_MODE_MASK) {
+            drawWithMask(canvas);
+        } else {
+            drawWithShader(canvas);
+        }
+    }
+
+    /**
+     * Draw image and reveal circle unclipped, view is clipped by its outline. Nothing drawn here depends
+     * on corner radius, except reveal circle and circle shown after half of morph.
+     */
+    private void drawWithOutline(Canvas canvas) {
+        mRectF.set(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getWidth() - getPaddingBottom());
+        float halfSize = (mRectF.right - mRectF.left) / 2.0f;
+        super.onDraw(canvas);
+
+        if (mRevealAnimation) {
+            float radius = halfSize * 1.5f * mRadiusPercentage;
+            canvas.drawCircle(mRectF.left + halfSize, mRectF.bottom - halfSize * mRadiusPercentage, radius, mCirclePaint);
+        } else if (mDismissAnimation) {
+            canvas.drawRect(mRectF, mCirclePaint);
+        } else {
+            if (mRadiusPercentage > 0.5f) {
+                canvas.drawCircle(mRectF.left + halfSize, mRectF.top + halfSize, halfSize, mCirclePaint);
+            }
+        }
+    }
+
+    private void drawWithMask(Canvas canvas) {
         mRectF.set(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getWidth() - getPaddingBottom());
         float halfSize = (mRectF.right - mRectF.left) / 2.0f;
         super.onDraw(canvas);
@@ -99,26 +349,101 @@ public class RoundRectImageView extends ImageView {
                 canvas.drawCircle(mRectF.left + halfSize, mRectF.top + halfSize, halfSize, mCirclePaint);
             }
         }
+        // view detached for flat mode releases mask and its measure can be skipped by measure cache
+        ensureMask(getWidth());
         if (mAnimationMaskCanvas != null) {
             mAnimationMaskCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
             mAnimationMaskCanvas.drawRoundRect(mRectF,
-                    (canvas.getWidth() - getPaddingLeft() - getPaddingRight()) * mRadiusPercentage / 2.0f,
-                    (canvas.getWidth() - getPaddingLeft() - getPaddingRight()) * mRadiusPercentage / 2.0f,
+                    (getWidth() - getPaddingLeft() - getPaddingRight()) * mRadiusPercentage / 2.0f,
+                    (getWidth() - getPaddingLeft() - getPaddingRight()) * mRadiusPercentage / 2.0f,
                     mPaint
             );
 
             canvas.drawBitmap(mAnimationMaskBitmap, 0, 0, mMaskPaint);
         }
+    }
+
+    /**
+     * Draw image and reveal circle clipped by round rect without any offscreen compositing.
+     * Image is taken from cached bitmap through shader, reveal circle is drawn as round rect
+     * filled with hard edged radial gradient, so both are clipped by geometry itself.
+     */
+    private void drawWithShader(Canvas canvas) {
+        mRectF.set(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getWidth() - getPaddingBottom());
+        float halfSize = (mRectF.right - mRectF.left) / 2.0f;
+        float cornerRadius = halfSize * mRadiusPercentage;
+
+        if (mContentDirty) {
+            renderContent();
+        }
+        if (mContentBitmap != null) {
+            canvas.drawRoundRect(mRectF, cornerRadius, cornerRadius, mContentPaint);
+        }
 
+        if (mRevealAnimation) {
+            float radius = halfSize * 1.5f * mRadiusPercentage;
+            if (radius > 0) {
+                float scale = radius / REVEAL_GRADIENT_RADIUS;
+                mRevealMatrix.setScale(scale, scale);
+                mRevealMatrix.postTranslate(mRectF.left + halfSize, mRectF.bottom - halfSize * mRadiusPercentage);
+                mRevealPaint.getShader().setLocalMatrix(mRevealMatrix);
+                mRevealPaint.setAlpha(mCirclePaint.getAlpha());
+                canvas.drawRoundRect(mRectF, cornerRadius, cornerRadius, mRevealPaint);
+            }
+        } else if (mDismissAnimation) {
+            canvas.drawRoundRect(mRectF, cornerRadius, cornerRadius, mCirclePaint);
+        } else {
+            if (mRadiusPercentage > 0.5f) {
+                canvas.drawCircle(mRectF.left + halfSize, mRectF.top + halfSize, halfSize, mCirclePaint);
+            }
+        }
+    }
+
+    /**
+     * Render current drawable into cached bitmap. Called only when drawable, scale type or size changed.
+     */
+    private void renderContent() {
+        mContentDirty = false;
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0 || getDrawable() == null) {
+            mContentPaint.setShader(null);
+            return;
+        }
+        if (mContentBitmap == null || mContentBitmap.getWidth() != width || mContentBitmap.getHeight() != height) {
+            if (mContentBitmap != null) {
+                mContentBitmap.recycle();
+            }
+            mContentBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mContentCanvas = new Canvas(mContentBitmap);
+            mContentPaint.setShader(new BitmapShader(mContentBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        } else if (mContentPaint.getShader() == null) {
+            mContentPaint.setShader(new BitmapShader(mContentBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        }
+        mContentCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        super.onDraw(mContentCanvas);
     }
 
     public void setRevealDrawingAlpha(float alpha) {
         mCirclePaint.setAlpha((int) (alpha * mColorAlpha));
+        // other modes are redrawn by radius change of the same frame
+        if (isClippedByOutline() && (mRevealAnimation || mDismissAnimation)) {
+            invalidate();
+        }
     }
 
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
     public void setRadiusPercentage(float radiusPercentage) {
+        float previousRadiusPercentage = mRadiusPercentage;
         this.mRadiusPercentage = radiusPercentage;
-        invalidate();
+        if (mRenderMode == RENDER_MODE_OUTLINE) {
+            mMorphOutline.setCornerRadiusPercentage(radiusPercentage);
+        }
+        if (!isClippedByOutline()
+                || mRevealAnimation
+                || !mDismissAnimation && (previousRadiusPercentage > 0.5f) != (radiusPercentage > 0.5f)) {
+            invalidate();
+        }
     }
 
     @Override
@@ -127,28 +452,52 @@ public class RoundRectImageView extends ImageView {
         final int heightSize = MeasureSpec.getSize(heightMeasureSpec);
         int newSize = Math.min(widthSize, heightSize);
         setMeasuredDimension(newSize, newSize);
-        if (mAnimationMaskBitmap == null || mSize != newSize) {
-            mAnimationMaskBitmap = Bitmap.createBitmap(newSize, newSize, Bitmap.Config.ARGB_4444);
+        ensureMask(newSize);
+    }
+
+    private void ensureMask(int size) {
+        if (mRenderMode == RENDER_MODE_MASK && size > 0 && (mAnimationMaskBitmap == null || mSize != size)) {
+            if (mAnimationMaskBitmap != null) {
+                mAnimationMaskBitmap.recycle();
+            }
+            mAnimationMaskBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_4444);
             mAnimationMaskCanvas = new Canvas(mAnimationMaskBitmap);
         }
-        mSize = newSize;
+        mSize = size;
     }
 
     @Override
     protected void onDetachedFromWindow() {
+        releaseBitmaps();
+        super.onDetachedFromWindow();
+    }
+
+    private void releaseBitmaps() {
         mAnimationMaskCanvas = null;
         if (mAnimationMaskBitmap != null) {
             mAnimationMaskBitmap.recycle();
             mAnimationMaskBitmap = null;
         }
-        super.onDetachedFromWindow();
+        mContentCanvas = null;
+        mContentPaint.setShader(null);
+        if (mContentBitmap != null) {
+            mContentBitmap.recycle();
+            mContentBitmap = null;
+        }
+        mContentDirty = true;
     }
 
     public void setRevealAnimation(boolean revealAnimation) {
+        if (mRevealAnimation != revealAnimation && isClippedByOutline()) {
+            invalidate();
+        }
         this.mRevealAnimation = revealAnimation;
     }
 
     public void setDismissAnimation(boolean dismissAnimation) {
+        if (mDismissAnimation != dismissAnimation && isClippedByOutline()) {
+            invalidate();
+        }
         this.mDismissAnimation = dismissAnimation;
     }
 
@@ -7,4 +7,12 @@ public class Utils {
     public static float betweenZeroOne(float value) {
         return Math.min(1.0f, Math.max(0.0f, value));
     }
+
+    /**
+     * Casts the value to an even integer.
+     */
+    public static int toEven(float value) {
+        int i = Math.round(value);
+        return (i % 2 == 1) ? i - 1 : i;
+    }
 }
@@ -6,26 +6,68 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
 import android.support.v7.widget.RecyclerView;
-import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
 import android.widget.Filter;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base filter that can be easily integrated with {@link BaseRecyclerViewAdapter}.<br/><br/>
  * For iterating through adapter's data use {@link #getNonFilteredCount()} and {@link #getNonFilteredItem(int)}.
+ * When constraint only extends previous one, items matched by previous constraint are available
+ * through {@link #getRefinableItems()}, so only they need to be checked.
+ * {@link #filterItems(List, ItemMatcher)} checks items in parallel chunks when there are many of them.
+ * If {@link #getItemKeys(List)} is implemented, difference with shown items is computed while filtering
+ * and adapter is notified only about inserted and removed items.
+ * If {@link #findHighlights(List, int, String)} is implemented, positions of matches are found while filtering too,
+ * so {@link #getHighlighted(int, int, String)} doesn't search strings.
  */
 abstract class BaseFilter<T> extends Filter {
 
+    /**
+     * Below this number of items dispatching chunks to other threads costs more than it saves.
+     */
+    static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * Payload of items that stayed in list when only highlighted substring changed.
+     */
+    static final Object PAYLOAD_HIGHLIGHT = new Object();
+
+    /**
+     * Lists of keys in arbitrary order that differ by more edits are updated with {@link FilterableAdapter#notifyDataSetChanged()}.
+     */
+    private static final int DIFF_MAX_EDITS = 500;
+
     private FilterableAdapter<T> adapter;
     private CharSequence lastConstraint;
     private FilterResults lastResults;
     private DataSetObserver dataSetObserver;
     private RecyclerView.AdapterDataObserver adapterDataObserver;
     private int highlightColor;
+    private boolean publishing;
+    // spannables built from highlights of last results, created on demand
+    private CharSequence[][] highlighted;
+    private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private final AtomicInteger requestedGeneration = new AtomicInteger();
+    private final FilterResults cancelledResults = new FilterResults();
+    // incremented from main thread when adapter's data changes, so computed differences become invalid
+    private final AtomicInteger dataVersion = new AtomicInteger();
+    // accessed only from filtering thread
+    private int filteringGeneration;
+    private List<T> refinableItems;
+    private int[] shownKeys;
+    private int shownDataVersion;
+    // guarded by this, cleared from main thread when data changes
+    private String previousQuery;
+    private List<T> previousValues;
 
     public BaseFilter(@NonNull Context context) throws AssertionError {
         highlightColor = ContextCompat.getColor(context, R.color.colorAccent);
@@ -40,20 +82,34 @@ abstract class BaseFilter<T> extends Filter {
         return this;
     }
 
+    /**
+     * Set number of items starting from which {@link #filterItems(List, ItemMatcher)} checks them in parallel.
+     *
+     * @param parallelThreshold number of items or {@link Integer#MAX_VALUE} to always filter sequentially
+     */
+    public BaseFilter setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be positive");
+        }
+        this.parallelThreshold = parallelThreshold;
+        return this;
+    }
+
     void init(@NonNull FilterableAdapter<T> adapter) throws AssertionError {
         this.adapter = adapter;
         dataSetObserver = new DataSetObserver() {
             @Override
             public void onChanged() {
                 super.onChanged();
-                if (!isFiltered())
+                if (publishing)
                     return;
-                performFiltering(lastConstraint);
+                dropPreviousResults();
             }
 
             @Override
             public void onInvalidated() {
                 super.onInvalidated();
+                dropPreviousResults();
                 if (!isFiltered())
                     return;
                 lastResults = new FilterResults();
@@ -65,11 +121,132 @@ abstract class BaseFilter<T> extends Filter {
             @Override
             public void onChanged() {
                 super.onChanged();
-                if (!isFiltered())
+                // changes published by filter itself don't invalidate results
+                if (publishing)
+                    return;
+                dropPreviousResults();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                super.onItemRangeInserted(positionStart, itemCount);
+                if (publishing)
+                    return;
+                dropPreviousResults();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                super.onItemRangeRemoved(positionStart, itemCount);
+                if (publishing)
                     return;
-                performFiltering(lastConstraint);
+                dropPreviousResults();
+            }
+        };
+    }
+
+    /**
+     * Filter data, cancelling filtering of previous constraint if it's still in progress.
+     *
+     * @param constraint the constraint used to filter the data
+     */
+    public void filterLatest(CharSequence constraint) {
+        requestedGeneration.incrementAndGet();
+        filter(constraint);
+    }
+
+    /**
+     * Check if newer constraint was requested with {@link #filterLatest(CharSequence)}.
+     * Long running {@link #performFilteringImpl(CharSequence)} should check it periodically and return
+     * any results when it's true, they will be discarded.
+     */
+    protected boolean isCancelled() {
+        return requestedGeneration.get() != filteringGeneration;
+    }
+
+    /**
+     * Items matched by previous constraint if current constraint contains it, so nothing else can match.
+     * Available only inside {@link #performFilteringImpl(CharSequence)}.
+     *
+     * @return previous matches or null if all items must be checked
+     */
+    @Nullable
+    protected List<T> getRefinableItems() {
+        return refinableItems;
+    }
+
+    /**
+     * Filter refinable items if they are available or all non filtered items otherwise.
+     * Large lists are split into chunks that are checked on several threads, order of items is kept.
+     * Returns any items when filtering is cancelled.
+     *
+     * @param candidates items from {@link #getRefinableItems()}, or null to check all non filtered items
+     * @param matcher    matcher that can be used from several threads at once
+     * @return matched items
+     */
+    protected List<T> filterItems(@Nullable final List<T> candidates, final ItemMatcher<T> matcher) {
+        int count = candidates == null ? getNonFilteredCount() : candidates.size();
+        ChunkedFilter.Matcher positionMatcher = new ChunkedFilter.Matcher() {
+            @Override
+            boolean matches(int position) {
+                return matcher.matches(candidates == null ? getNonFilteredItem(position) : candidates.get(position));
+            }
+
+            @Override
+            boolean isCancelled() {
+                return BaseFilter.this.isCancelled();
             }
         };
+        ChunkedFilter chunkedFilter = ChunkedFilter.getInstance();
+        int[] positions = count < parallelThreshold || chunkedFilter.getThreadsCount() < 2
+                ? ChunkedFilter.filterChunk(0, count, positionMatcher)
+                : chunkedFilter.filter(count, positionMatcher);
+        List<T> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(candidates == null ? getNonFilteredItem(position) : candidates.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Keys of items used to find difference between shown and filtered items.
+     * Key must be unique in list and stay the same for the same item until adapter's data changes.
+     *
+     * @param items filtered items or all non filtered items
+     * @return keys of items or null if items don't have keys, then adapter is notified that whole data set changed
+     */
+    @Nullable
+    protected int[] getItemKeys(@NonNull List<T> items) {
+        return null;
+    }
+
+    /**
+     * Find matches of query in fields of filtered item, called from filtering thread for every filtered item.
+     *
+     * @param items    filtered items
+     * @param position position of item
+     * @param query    trimmed constraint in lower case
+     * @return pairs of field index and start of match in this field or null if nothing should be highlighted
+     */
+    @Nullable
+    protected int[] findHighlights(@NonNull List<T> items, int position, @NonNull String query) {
+        return null;
+    }
+
+    /**
+     * Notify filter that items were appended to non filtered items, instead of notifying adapter while it's filtered.
+     * Items shown before keep their keys, so next filtering publishes only inserted matches.
+     * Previous results aren't refined anymore, because they don't contain appended items.
+     */
+    public synchronized void onItemsAppended() {
+        previousQuery = null;
+        previousValues = null;
+    }
+
+    private synchronized void dropPreviousResults() {
+        previousQuery = null;
+        previousValues = null;
+        dataVersion.incrementAndGet();
     }
 
     protected int getNonFilteredCount() {
@@ -82,8 +259,78 @@ abstract class BaseFilter<T> extends Filter {
 
     @NonNull
     @Override
+    @SuppressWarnings("unchecked")
     protected final FilterResults performFiltering(CharSequence constraint) {
-        return performFilteringImpl(constraint);
+        filteringGeneration = requestedGeneration.get();
+        int version = dataVersion.get();
+        String query = constraint == null ? "" : normalize(constraint);
+        synchronized (this) {
+            refinableItems = previousQuery != null && !query.isEmpty() && query.contains(previousQuery)
+                    ? previousValues
+                    : null;
+        }
+        FilterResults results;
+        try {
+            results = performFilteringImpl(constraint);
+        } finally {
+            refinableItems = null;
+        }
+        if (isCancelled()) {
+            return cancelledResults;
+        }
+        synchronized (this) {
+            if (results.count > -1) {
+                previousQuery = query;
+                previousValues = (List<T>) results.values;
+            } else {
+                previousQuery = null;
+                previousValues = null;
+            }
+        }
+        PreparedResults prepared = new PreparedResults(results, version);
+        if (results.count > -1 && !collectHighlights(prepared, query)) {
+            return cancelledResults;
+        }
+        int[] keys = getItemKeys(results.count > -1 ? (List<T>) results.values : new NonFilteredItems());
+        prepared.diff = keys != null && shownKeys != null && shownDataVersion == version
+                ? ListDiff.compute(shownKeys, keys, DIFF_MAX_EDITS)
+                : null;
+        shownKeys = keys;
+        shownDataVersion = version;
+        return prepared;
+    }
+
+    /**
+     * Store highlights of all filtered items in one array.
+     *
+     * @return false if filtering was cancelled
+     */
+    @SuppressWarnings("unchecked")
+    private boolean collectHighlights(PreparedResults results, String query) {
+        List<T> items = (List<T>) results.values;
+        int count = items.size();
+        int[] starts = new int[count + 1];
+        int[] values = new int[Math.max(16, count * 2)];
+        int valuesCount = 0;
+        for (int i = 0; i < count; i++) {
+            if ((i & 0xFF) == 0 && isCancelled()) {
+                return false;
+            }
+            int[] highlights = findHighlights(items, i, query);
+            int length = highlights == null ? 0 : highlights.length;
+            if (valuesCount + length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, valuesCount + length));
+            }
+            if (length > 0) {
+                System.arraycopy(highlights, 0, values, valuesCount, length);
+                valuesCount += length;
+            }
+            starts[i + 1] = valuesCount;
+        }
+        results.highlightStarts = starts;
+        results.highlights = values;
+        results.highlightLength = query.length();
+        return true;
     }
 
     /**
@@ -98,9 +345,41 @@ abstract class BaseFilter<T> extends Filter {
 
     @Override
     protected final void publishResults(CharSequence constraint, FilterResults results) throws AssertionError {
+        if (results == cancelledResults) {
+            return;
+        }
+        String previousHighlight = isFiltered() ? normalize(lastConstraint) : null;
         lastConstraint = constraint;
         lastResults = results;
-        adapter.notifyDataSetChanged();
+        highlighted = null;
+        publishing = true;
+        try {
+            ListDiff diff = results instanceof PreparedResults && ((PreparedResults) results).dataVersion == dataVersion.get()
+                    ? ((PreparedResults) results).diff
+                    : null;
+            if (diff == null) {
+                adapter.notifyDataSetChanged();
+                return;
+            }
+            diff.dispatch(new ListDiff.Callback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    adapter.notifyItemRangeInserted(position, count);
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    adapter.notifyItemRangeRemoved(position, count);
+                }
+            });
+            String highlight = isFiltered() ? normalize(lastConstraint) : null;
+            boolean highlightChanged = highlight == null ? previousHighlight != null : !highlight.equals(previousHighlight);
+            if (highlightChanged && adapter.getItemCount() > 0) {
+                adapter.notifyItemRangeChanged(0, adapter.getItemCount(), PAYLOAD_HIGHLIGHT);
+            }
+        } finally {
+            publishing = false;
+        }
     }
 
     public boolean isFiltered() {
@@ -124,31 +403,100 @@ abstract class BaseFilter<T> extends Filter {
         return adapterDataObserver;
     }
 
-    public Spannable highlightFilteredSubstring(String name) {
-        SpannableString string = new SpannableString(name);
-        if (!isFiltered())
-            return string;
-        String filteredString = lastConstraint.toString().trim().toLowerCase();
-        String lowercase = name.toLowerCase();
-        int length = filteredString.length();
-        int index = -1, prevIndex;
-        do {
-            prevIndex = index;
-            index = lowercase.indexOf(filteredString, prevIndex + 1);
-            if (index == -1) {
-                break;
+    /**
+     * Get field of filtered item with highlighted matches. Spannable is built once per results.
+     *
+     * @param position position of filtered item
+     * @param field    index of field used by {@link #findHighlights(List, int, String)}
+     * @param text     value of field
+     * @return highlighted text or text itself if nothing matched in it
+     */
+    public CharSequence getHighlighted(int position, int field, String text) {
+        if (text == null || !isFiltered() || !(lastResults instanceof PreparedResults)) {
+            return text;
+        }
+        PreparedResults results = (PreparedResults) lastResults;
+        if (highlighted == null) {
+            highlighted = new CharSequence[results.count][];
+        }
+        CharSequence[] fields = highlighted[position];
+        if (fields != null && field < fields.length && fields[field] != null) {
+            return fields[field];
+        }
+        SpannableString string = null;
+        for (int i = results.highlightStarts[position]; i < results.highlightStarts[position + 1]; i += 2) {
+            if (results.highlights[i] != field) {
+                continue;
+            }
+            int start = Math.min(results.highlights[i + 1], text.length());
+            int end = Math.min(start + results.highlightLength, text.length());
+            if (string == null) {
+                string = new SpannableString(text);
             }
-            string.setSpan(new ForegroundColorSpan(highlightColor), index, index + length, 0);
-        } while (true);
+            string.setSpan(new ForegroundColorSpan(highlightColor), start, end, 0);
+        }
+        if (string == null) {
+            return text;
+        }
+        if (fields == null || field >= fields.length) {
+            fields = fields == null ? new CharSequence[field + 1] : Arrays.copyOf(fields, field + 1);
+            highlighted[position] = fields;
+        }
+        fields[field] = string;
         return string;
     }
 
+    private static String normalize(CharSequence constraint) {
+        return constraint.toString().trim().toLowerCase();
+    }
+
+    /**
+     * Results with difference from previously shown items and highlights of filtered items.
+     * Highlights of item {@code i} are {@code highlights[highlightStarts[i]..highlightStarts[i + 1])}.
+     */
+    private static class PreparedResults extends FilterResults {
+        private final int dataVersion;
+        private ListDiff diff;
+        private int[] highlightStarts;
+        private int[] highlights;
+        private int highlightLength;
+
+        PreparedResults(FilterResults results, int dataVersion) {
+            this.dataVersion = dataVersion;
+            count = results.count;
+            values = results.values;
+        }
+    }
+
+    private class NonFilteredItems extends AbstractList<T> {
+        @Override
+        public T get(int location) {
+            return getNonFilteredItem(location);
+        }
+
+        @Override
+        public int size() {
+            return getNonFilteredCount();
+        }
+    }
+
+    /**
+     * Matcher of single item.
+     */
+    interface ItemMatcher<T> {
+        boolean matches(T item);
+    }
+
     interface FilterableAdapter<T> {
         int getNonFilteredCount();
         T getNonFilteredItem(int position);
+        int getItemCount();
         void notifyDataSetChanged();
+        void notifyItemRangeInserted(int positionStart, int itemCount);
+        void notifyItemRangeRemoved(int positionStart, int itemCount);
+        void notifyItemRangeChanged(int positionStart, int itemCount, Object payload);
         void withFilter(@Nullable BaseFilter<T> filter);
         boolean isFiltered();
-        Spannable highlightFilteredSubstring(String text);
+        CharSequence getHighlighted(int position, int field, String text);
     }
 }
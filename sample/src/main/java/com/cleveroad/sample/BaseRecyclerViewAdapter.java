@@ -4,8 +4,6 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
-import android.text.Spannable;
-import android.text.SpannableString;
 import android.view.LayoutInflater;
 
 import java.util.ArrayList;
@@ -54,13 +52,13 @@ abstract class BaseRecyclerViewAdapter<TData, TViewHolder extends RecyclerView.V
     public int getItemCount() {
         if (filter != null && filter.isFiltered())
             return filter.getCount();
-        return data.size();
+        return getNonFilteredCount();
     }
 
     public TData getItem(final int position) throws ArrayIndexOutOfBoundsException {
         if (filter != null && filter.isFiltered())
             return filter.getItem(position);
-        return data.get(position);
+        return getNonFilteredItem(position);
     }
 
     @Override
@@ -69,8 +67,8 @@ abstract class BaseRecyclerViewAdapter<TData, TViewHolder extends RecyclerView.V
     }
 
     @Override
-    public Spannable highlightFilteredSubstring(String text) {
-        return isFiltered() ? filter.highlightFilteredSubstring(text) : new SpannableString(text);
+    public CharSequence getHighlighted(int position, int field, String text) {
+        return isFiltered() ? filter.getHighlighted(position, field, text) : text;
     }
 
     @Override
@@ -0,0 +1,23 @@
+package com.cleveroad.sample;
+
+import android.content.Context;
+
+import java.io.File;
+
+/**
+ * Loader for queue restored after process death, when {@link PlayQueueRegistry} is empty.
+ * Tracks cached by {@link MusicLoader} are read here, so the whole library isn't decoded on main thread.
+ * Empty store is delivered if there is no cache.
+ */
+class CachedQueueLoader extends BaseAsyncTaskLoader<TrackStore> {
+
+    public CachedQueueLoader(Context context) {
+        super(context);
+    }
+
+    @Override
+    public TrackStore loadInBackground() {
+        TrackStoreCache.Entry cached = new TrackStoreCache(new File(getContext().getCacheDir(), MusicLoader.CACHE_FILE_NAME)).read();
+        return cached == null ? new TrackStore.Builder(0).build() : cached.store();
+    }
+}
@@ -0,0 +1,150 @@
+package com.cleveroad.sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits range of positions into chunks and checks them on fixed pool of threads.
+ * Matched positions of all chunks are merged in original order.
+ */
+final class ChunkedFilter {
+
+    /**
+     * Chunks per thread, so threads that finish earlier take the rest of work.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_SIZE = 256;
+    private static final int[] EMPTY = new int[0];
+
+    private static ChunkedFilter instance;
+
+    private final ExecutorService executor;
+    private final int threadsCount;
+
+    /**
+     * @return filter with one thread per available core
+     */
+    static synchronized ChunkedFilter getInstance() {
+        if (instance == null) {
+            instance = new ChunkedFilter(Runtime.getRuntime().availableProcessors());
+        }
+        return instance;
+    }
+
+    ChunkedFilter(int threadsCount) {
+        if (threadsCount < 1) {
+            throw new IllegalArgumentException("Threads count must be positive");
+        }
+        this.threadsCount = threadsCount;
+        final AtomicInteger number = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threadsCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ChunkedFilter #" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    int getThreadsCount() {
+        return threadsCount;
+    }
+
+    /**
+     * Check positions from 0 to count in parallel. Blocks until all chunks are checked.
+     *
+     * @param count   number of positions
+     * @param matcher thread safe matcher
+     * @return matched positions in ascending order, empty if matcher was cancelled
+     */
+    int[] filter(int count, final Matcher matcher) {
+        if (count <= 0) {
+            return EMPTY;
+        }
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (count + threadsCount * CHUNKS_PER_THREAD - 1) / (threadsCount * CHUNKS_PER_THREAD));
+        List<Callable<int[]>> chunks = new ArrayList<>();
+        for (int start = 0; start < count; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(count, start + chunkSize);
+            chunks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() throws Exception {
+                    return filterChunk(from, to, matcher);
+                }
+            });
+        }
+        List<Future<int[]>> futures;
+        try {
+            futures = executor.invokeAll(chunks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EMPTY;
+        }
+        int[][] results = new int[futures.size()][];
+        int resultCount = 0;
+        for (int i = 0; i < results.length; i++) {
+            try {
+                results[i] = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return EMPTY;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            resultCount += results[i].length;
+        }
+        if (matcher.isCancelled()) {
+            return EMPTY;
+        }
+        int[] result = new int[resultCount];
+        int offset = 0;
+        for (int[] chunk : results) {
+            System.arraycopy(chunk, 0, result, offset, chunk.length);
+            offset += chunk.length;
+        }
+        return result;
+    }
+
+    /**
+     * Check positions sequentially on calling thread.
+     *
+     * @return matched positions from {@code from} to {@code to} in ascending order
+     */
+    static int[] filterChunk(int from, int to, Matcher matcher) {
+        int[] result = new int[to - from];
+        int resultCount = 0;
+        for (int i = from; i < to; i++) {
+            if ((i - from) % MIN_CHUNK_SIZE == 0 && matcher.isCancelled()) {
+                return EMPTY;
+            }
+            if (matcher.matches(i)) {
+                result[resultCount++] = i;
+            }
+        }
+        return Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Matcher of positions. Called from several threads at once.
+     */
+    abstract static class Matcher {
+
+        abstract boolean matches(int position);
+
+        /**
+         * @return true if filtering must be stopped
+         */
+        boolean isCancelled() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.cleveroad.sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal list of insertions and removals that turns one list of item keys into another.<br/><br/>
+ * Common prefix and suffix are skipped. When keys of both lists are ascending, as results of filtering are,
+ * the rest is merged in linear time. Otherwise Myers' O((N + M) D) algorithm is used,
+ * limited by max number of edits. Moved item is reported as removal and insertion.
+ */
+final class ListDiff {
+
+    private static final int REMOVAL = 0;
+    private static final int INSERTION = 1;
+
+    /**
+     * Edits from the end of list to its start, each is {@code position << 1 | type}.
+     * Removal position is position of removed item, insertion position is number of old items before it.
+     * Applying edits in this order never shifts positions of next edits.
+     */
+    private final int[] edits;
+    private final int editsCount;
+
+    private ListDiff(int[] edits, int editsCount) {
+        this.edits = edits;
+        this.editsCount = editsCount;
+    }
+
+    /**
+     * @param oldKeys  keys of old list, unique in list
+     * @param newKeys  keys of new list, unique in list
+     * @param maxEdits max number of edits for lists with keys in arbitrary order
+     * @return diff or null if lists differ by more than max edits
+     */
+    static ListDiff compute(int[] oldKeys, int[] newKeys, int maxEdits) {
+        int oldEnd = oldKeys.length;
+        int newEnd = newKeys.length;
+        int start = 0;
+        while (start < oldEnd && start < newEnd && oldKeys[start] == newKeys[start]) {
+            start++;
+        }
+        while (oldEnd > start && newEnd > start && oldKeys[oldEnd - 1] == newKeys[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+        Edits edits = new Edits();
+        if (isAscending(oldKeys, start, oldEnd) && isAscending(newKeys, start, newEnd)) {
+            merge(oldKeys, newKeys, start, oldEnd, newEnd, edits);
+        } else if (!myers(oldKeys, newKeys, start, oldEnd, newEnd, maxEdits, edits)) {
+            return null;
+        }
+        return new ListDiff(edits.values, edits.count);
+    }
+
+    /**
+     * Dispatch edits as ranges of insertions and removals.
+     */
+    void dispatch(Callback callback) {
+        int i = 0;
+        while (i < editsCount) {
+            int type = edits[i] & 1;
+            int position = edits[i] >> 1;
+            int count = 1;
+            i++;
+            if (type == REMOVAL) {
+                // removals go from the end, so each next one is right before previous
+                while (i < editsCount && edits[i] == ((position - 1) << 1 | REMOVAL)) {
+                    position--;
+                    count++;
+                    i++;
+                }
+                callback.onRemoved(position, count);
+            } else {
+                while (i < editsCount && edits[i] == (position << 1 | INSERTION)) {
+                    count++;
+                    i++;
+                }
+                callback.onInserted(position, count);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return editsCount == 0;
+    }
+
+    private static boolean isAscending(int[] keys, int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            if (keys[i] <= keys[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Common items of two ascending lists are their intersection, so lists are merged from the end.
+     */
+    private static void merge(int[] oldKeys, int[] newKeys, int start, int oldEnd, int newEnd, Edits edits) {
+        int x = oldEnd;
+        int y = newEnd;
+        while (x > start || y > start) {
+            if (x > start && y > start && oldKeys[x - 1] == newKeys[y - 1]) {
+                x--;
+                y--;
+            } else if (y == start || x > start && oldKeys[x - 1] > newKeys[y - 1]) {
+                x--;
+                edits.add(x, REMOVAL);
+            } else {
+                y--;
+                edits.add(x, INSERTION);
+            }
+        }
+    }
+
+    /**
+     * Find the shortest edit script with Myers' greedy algorithm and backtrack it from the end.
+     *
+     * @return false if lists differ by more than max edits
+     */
+    private static boolean myers(int[] oldKeys, int[] newKeys, int start, int oldEnd, int newEnd, int maxEdits, Edits edits) {
+        int n = oldEnd - start;
+        int m = newEnd - start;
+        int max = Math.min(n + m, maxEdits);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || k != d && v[offset + k - 1] < v[offset + k + 1]
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && oldKeys[start + x] == newKeys[start + y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    backtrack(trace, d, n, m, offset, start, edits);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void backtrack(List<int[]> trace, int edit, int n, int m, int offset, int start, Edits edits) {
+        int x = n;
+        int y = m;
+        for (int d = edit; d > 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            int previousK = k == -d || k != d && v[offset + k - 1] < v[offset + k + 1] ? k + 1 : k - 1;
+            int previousX = v[offset + previousK];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+            }
+            if (previousK == k + 1) {
+                edits.add(start + x, INSERTION);
+            } else {
+                edits.add(start + previousX, REMOVAL);
+            }
+            x = previousX;
+            y = previousY;
+        }
+    }
+
+    interface Callback {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+    }
+
+    private static class Edits {
+        private int[] values = new int[16];
+        private int count;
+
+        void add(int position, int type) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = position << 1 | type;
+        }
+    }
+}
@@ -8,9 +8,10 @@ import android.graphics.drawable.Drawable;
 import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.os.Bundle;
-import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.v4.app.ActivityCompat;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.Loader;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
@@ -24,30 +25,59 @@ import com.bumptech.glide.load.resource.drawable.GlideDrawable;
 import com.bumptech.glide.request.animation.GlideAnimation;
 import com.bumptech.glide.request.target.SimpleTarget;
 import com.cleveroad.play_widget.PlayLayout;
+import com.cleveroad.play_widget.PlaybackProgressDriver;
 import com.cleveroad.play_widget.VisualizerShadowChanger;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 public class MainActivity extends AppCompatActivity implements MediaPlayer.OnPreparedListener,
         MediaPlayer.OnCompletionListener, MediaPlayer.OnErrorListener {
 
     public static final String EXTRA_SELECT_TRACK = "EXTRA_SELECT_TRACK";
-    public static final String EXTRA_FILE_URIS = "EXTRA_FILE_URIS";
-    private static final long UPDATE_INTERVAL = 20;
+    /**
+     * Position of selected track in queue.
+     */
+    public static final String EXTRA_SELECT_POSITION = "EXTRA_SELECT_POSITION";
+    /**
+     * Handle of queue in {@link PlayQueueRegistry}.
+     */
+    public static final String EXTRA_QUEUE_HANDLE = "EXTRA_QUEUE_HANDLE";
     private static final int MY_PERMISSIONS_REQUEST_READ_AUDIO = 11;
+    private static final int QUEUE_LOADER_ID = 1;
 
     private PlayLayout mPlayLayout;
     private VisualizerShadowChanger mShadowChanger;
     private MediaPlayer mediaPlayer;
-    private Timer timer;
+    private PlaybackProgressDriver progressDriver;
     private boolean preparing;
     private int playingIndex = -1;
     private boolean paused;
-    private final List<MusicItem> items = new ArrayList<>();
+    private List<MusicItem> items = Collections.emptyList();
+    /**
+     * True while only selected track is queued and cached queue is loading.
+     */
+    private boolean cachedQueuePending;
+    /**
+     * Position of selected track in list it was selected from, it's the same in cached queue.
+     */
+    private int cachedQueuePosition;
+    private final LoaderManager.LoaderCallbacks<TrackStore> cachedQueueCallbacks = new LoaderManager.LoaderCallbacks<TrackStore>() {
+        @Override
+        public Loader<TrackStore> onCreateLoader(int id, Bundle args) {
+            return new CachedQueueLoader(MainActivity.this);
+        }
+
+        @Override
+        public void onLoadFinished(Loader<TrackStore> loader, TrackStore store) {
+            onCachedQueueLoaded(store);
+        }
+
+        @Override
+        public void onLoaderReset(Loader<TrackStore> loader) {
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -110,6 +140,22 @@ public class MainActivity extends AppCompatActivity implements MediaPlayer.OnPre
         mediaPlayer.setOnCompletionListener(this);
         mediaPlayer.setOnErrorListener(this);
         mediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
+        progressDriver = new PlaybackProgressDriver(mPlayLayout, new PlaybackProgressDriver.PositionSource() {
+            @Override
+            public boolean isPlaying() {
+                return mediaPlayer != null && mediaPlayer.isPlaying();
+            }
+
+            @Override
+            public long getCurrentPosition() {
+                return mediaPlayer.getCurrentPosition();
+            }
+
+            @Override
+            public long getDuration() {
+                return mediaPlayer.getDuration();
+            }
+        });
         mPlayLayout.fastOpen();
         selectNewTrack(getIntent());
     }
@@ -217,10 +263,10 @@ public class MainActivity extends AppCompatActivity implements MediaPlayer.OnPre
         if (preparing) {
             return;
         }
-        if (intent.hasExtra(EXTRA_FILE_URIS)) {
-            addNewTracks(intent);
-        }
         MusicItem item = intent.getParcelableExtra(EXTRA_SELECT_TRACK);
+        if (intent.hasExtra(EXTRA_QUEUE_HANDLE)) {
+            addNewTracks(intent, item);
+        }
         if (item == null && playingIndex == -1 || playingIndex != -1 && items.get(playingIndex).equals(item)) {
             if (mediaPlayer.isPlaying()) {
                 mPlayLayout.startDismissAnimation();
@@ -229,7 +275,12 @@ public class MainActivity extends AppCompatActivity implements MediaPlayer.OnPre
             }
             return;
         }
-        playingIndex = items.indexOf(item);
+        int position = intent.getIntExtra(EXTRA_SELECT_POSITION, -1);
+        if (position >= 0 && position < items.size() && items.get(position).equals(item)) {
+            playingIndex = position;
+        } else {
+            playingIndex = items.indexOf(item);
+        }
         startCurrentTrack();
     }
 
@@ -258,16 +309,11 @@ public class MainActivity extends AppCompatActivity implements MediaPlayer.OnPre
         }
     }
 
-    private void addNewTracks(Intent intent) {
+    private void addNewTracks(Intent intent, MusicItem selectedItem) {
         MusicItem playingItem = null;
         if (playingIndex != -1)
             playingItem = items.get(playingIndex);
-        items.clear();
-        Parcelable[] items = intent.getParcelableArrayExtra(EXTRA_FILE_URIS);
-        for (Parcelable item : items) {
-            if (item instanceof MusicItem)
-                this.items.add((MusicItem) item);
-        }
+        items = loadQueue(intent.getLongExtra(EXTRA_QUEUE_HANDLE, 0), selectedItem, intent.getIntExtra(EXTRA_SELECT_POSITION, -1));
         if (playingItem == null) {
             playingIndex = -1;
         } else {
@@ -279,6 +325,46 @@ public class MainActivity extends AppCompatActivity implements MediaPlayer.OnPre
         }
     }
 
+    /**
+     * Get queue from registry. After process death registry is empty, then only selected track is queued
+     * until {@link CachedQueueLoader} reads tracks cached by {@link MusicLoader}.
+     */
+    private List<MusicItem> loadQueue(long handle, MusicItem selectedItem, int selectedPosition) {
+        TrackStore store = PlayQueueRegistry.get(handle);
+        if (store != null) {
+            cachedQueuePending = false;
+            return MusicLibrary.itemsOf(store);
+        }
+        // selected track is played right away, cached queue replaces it when it's read
+        cachedQueuePending = true;
+        cachedQueuePosition = selectedPosition;
+        getSupportLoaderManager().initLoader(QUEUE_LOADER_ID, null, cachedQueueCallbacks);
+        return selectedItem == null ? Collections.<MusicItem>emptyList() : Collections.singletonList(selectedItem);
+    }
+
+    private void onCachedQueueLoaded(TrackStore store) {
+        if (!cachedQueuePending || store.size() == 0) {
+            return;
+        }
+        cachedQueuePending = false;
+        List<MusicItem> queue = MusicLibrary.itemsOf(store);
+        if (playingIndex == -1) {
+            items = queue;
+            return;
+        }
+        MusicItem playingItem = items.get(playingIndex);
+        // queue holds only selected track, so it's playing one
+        int position = cachedQueuePosition;
+        if (position < 0 || position >= queue.size() || !queue.get(position).equals(playingItem)) {
+            position = queue.indexOf(playingItem);
+        }
+        if (position != -1) {
+            // otherwise track isn't cached anymore, then queue of only this track is kept
+            items = queue;
+            playingIndex = position;
+        }
+    }
+
     @Override
     public void onPrepared(MediaPlayer mp) {
         preparing = false;
@@ -329,27 +415,12 @@ public class MainActivity extends AppCompatActivity implements MediaPlayer.OnPre
     }
 
     private void startTrackingPosition() {
-        timer = new Timer("MainActivity Timer");
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                MediaPlayer tempMediaPlayer = mediaPlayer;
-                if (tempMediaPlayer != null && tempMediaPlayer != null && tempMediaPlayer.isPlaying()) {
-
-                    mPlayLayout.setPostProgress((float) tempMediaPlayer.getCurrentPosition() / tempMediaPlayer.getDuration());
-                }
-
-            }
-        }, UPDATE_INTERVAL, UPDATE_INTERVAL);
+        progressDriver.start();
     }
 
 
     private void stopTrackingPosition() {
-        if (timer == null)
-            return;
-        timer.cancel();
-        timer.purge();
-        timer = null;
+        progressDriver.stop();
     }
 
     private void playButtonClicked() {
@@ -1,7 +1,10 @@
 package com.cleveroad.sample;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,6 +14,8 @@ import android.widget.TextView;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import butterknife.Bind;
@@ -18,15 +23,95 @@ import butterknife.ButterKnife;
 import jp.wasabeef.glide.transformations.CropCircleTransformation;
 
 /**
- * Adapter for list of tracks.
+ * Adapter for list of tracks. Tracks are read from {@link MusicLibrary}, items are created only for bound rows.<br/><br/>
+ * Item ids are MediaStore ids of tracks. Changes of highlighted text and now playing track are bound
+ * with payloads, so they update only affected views and don't reload album cover.
  */
 class MusicAdapter extends BaseRecyclerViewAdapter<MusicItem, MusicAdapter.MusicViewHolder> {
 
+    /**
+     * Payload of items which now playing state changed.
+     */
+    static final Object PAYLOAD_NOW_PLAYING = new Object();
+
     private final CropCircleTransformation cropCircleTransformation;
+    private final int nowPlayingColor;
+    private volatile MusicLibrary library;
+    private long nowPlayingId = RecyclerView.NO_ID;
 
     public MusicAdapter(@NonNull Context context) {
         super(context);
         cropCircleTransformation = new CropCircleTransformation(context);
+        nowPlayingColor = ContextCompat.getColor(context, R.color.colorAccent);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Set tracks of adapter. Caller must notify adapter about changes.
+     *
+     * @param library library or null to clear adapter
+     */
+    public void setLibrary(@Nullable MusicLibrary library) {
+        this.library = library;
+    }
+
+    @Override
+    public int getNonFilteredCount() {
+        MusicLibrary library = this.library;
+        return library == null ? 0 : library.size();
+    }
+
+    @Override
+    public MusicItem getNonFilteredItem(int position) {
+        return library.items().get(position);
+    }
+
+    @Override
+    public List<MusicItem> getSnapshot() {
+        MusicLibrary library = this.library;
+        return library == null ? new ArrayList<MusicItem>() : new ArrayList<>(library.items());
+    }
+
+    /**
+     * @return store with non filtered tracks or null if there are no tracks
+     */
+    @Nullable
+    public TrackStore getStore() {
+        MusicLibrary library = this.library;
+        return library == null ? null : library.store();
+    }
+
+    /**
+     * Mark track as now playing.
+     *
+     * @param trackId id of track or {@link RecyclerView#NO_ID} if nothing is playing
+     */
+    public void setNowPlaying(long trackId) {
+        if (nowPlayingId == trackId) {
+            return;
+        }
+        long previousId = nowPlayingId;
+        nowPlayingId = trackId;
+        notifyNowPlayingChanged(previousId);
+        notifyNowPlayingChanged(trackId);
+    }
+
+    private void notifyNowPlayingChanged(long trackId) {
+        if (trackId == RecyclerView.NO_ID) {
+            return;
+        }
+        int count = getItemCount();
+        for (int i = 0; i < count; i++) {
+            if (getItemId(i) == trackId) {
+                notifyItemChanged(i, PAYLOAD_NOW_PLAYING);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id();
     }
 
     @Override
@@ -38,9 +123,8 @@ class MusicAdapter extends BaseRecyclerViewAdapter<MusicItem, MusicAdapter.Music
     @Override
     public void onBindViewHolder(MusicViewHolder holder, int position) {
         MusicItem item = getItem(position);
-        holder.title.setText(getFilter().highlightFilteredSubstring(item.title()));
-        holder.artist.setText(getFilter().highlightFilteredSubstring(item.artist()));
-        holder.album.setText(getFilter().highlightFilteredSubstring(item.album()));
+        bindTexts(holder, position, item);
+        bindNowPlaying(holder, item);
         holder.duration.setText(convertDuration(item.duration()));
         Glide.with(getContext())
                 .load(item.albumArtUri())
@@ -51,6 +135,40 @@ class MusicAdapter extends BaseRecyclerViewAdapter<MusicItem, MusicAdapter.Music
                 .into(holder.albumCover);
     }
 
+    @Override
+    public void onBindViewHolder(MusicViewHolder holder, int position, List<Object> payloads) {
+        boolean partial = !payloads.isEmpty();
+        for (Object payload : payloads) {
+            partial &= payload == BaseFilter.PAYLOAD_HIGHLIGHT || payload == PAYLOAD_NOW_PLAYING;
+        }
+        if (!partial) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        // track is the same, so cover and duration are not touched
+        MusicItem item = getItem(position);
+        if (payloads.contains(BaseFilter.PAYLOAD_HIGHLIGHT)) {
+            bindTexts(holder, position, item);
+        }
+        if (payloads.contains(PAYLOAD_NOW_PLAYING)) {
+            bindNowPlaying(holder, item);
+        }
+    }
+
+    private void bindTexts(MusicViewHolder holder, int position, MusicItem item) {
+        holder.title.setText(getHighlighted(position, TrackMatcher.FIELD_TITLE, item.title()));
+        holder.artist.setText(getHighlighted(position, TrackMatcher.FIELD_ARTIST, item.artist()));
+        holder.album.setText(getHighlighted(position, TrackMatcher.FIELD_ALBUM, item.album()));
+    }
+
+    private void bindNowPlaying(MusicViewHolder holder, MusicItem item) {
+        if (item.id() == nowPlayingId) {
+            holder.duration.setTextColor(nowPlayingColor);
+        } else {
+            holder.duration.setTextColor(holder.durationColors);
+        }
+    }
+
     private String convertDuration(long durationInMs) {
         long durationInSeconds = durationInMs / 1000;
         long seconds = durationInSeconds % 60;
@@ -80,9 +198,12 @@ class MusicAdapter extends BaseRecyclerViewAdapter<MusicItem, MusicAdapter.Music
         ImageView albumCover;
 
 
+        final ColorStateList durationColors;
+
         public MusicViewHolder(View itemView) {
             super(itemView);
             ButterKnife.bind(this, itemView);
+            durationColors = duration.getTextColors();
         }
     }
 }
@@ -5,18 +5,30 @@ import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.widget.Filter;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
- * Filter for list of tracks.
+ * Filter for list of tracks. Uses {@link TrackIndex} of complete library when it matches adapter's data,
+ * otherwise checks every track.
  */
 class MusicFilter extends BaseFilter<MusicItem> {
 
+    private volatile MusicLibrary library;
+
     public MusicFilter(int highlightColor) throws AssertionError {
         super(highlightColor);
     }
 
+    /**
+     * Set library which items are non filtered items of adapter.
+     *
+     * @param library library or null if adapter's data changed
+     */
+    public void setLibrary(@Nullable MusicLibrary library) {
+        this.library = library;
+    }
+
     @NonNull
     @Override
     protected Filter.FilterResults performFilteringImpl(CharSequence constraint) {
@@ -25,29 +37,85 @@ class MusicFilter extends BaseFilter<MusicItem> {
             results.count = -1;
             return results;
         }
-        String str = constraint.toString().trim();
-        List<MusicItem> result = new ArrayList<>();
-        int size = getNonFilteredCount();
-        for (int i = 0; i < size; i++) {
-            MusicItem item = getNonFilteredItem(i);
-            if (
-                    check(str, item.title())
-                            || check(str, item.album())
-                            || check(str, item.artist())
-                    ) {
-                result.add(item);
+        final String str = constraint.toString().trim().toLowerCase();
+        List<MusicItem> candidates = getRefinableItems();
+        MusicLibrary library = this.library;
+        TrackIndex index = library == null ? null : library.index();
+        List<MusicItem> result;
+        if (index != null && library.items().size() == getNonFilteredCount()) {
+            int[] positions;
+            if (candidates instanceof Matches && ((Matches) candidates).items == library.items()) {
+                positions = index.filter(((Matches) candidates).positions, str);
+            } else {
+                positions = index.search(str);
             }
+            result = new Matches(library.items(), positions);
+        } else {
+            result = filterItems(candidates, new ItemMatcher<MusicItem>() {
+                @Override
+                public boolean matches(MusicItem item) {
+                    return TrackMatcher.matches(str, item.title(), item.album(), item.artist());
+                }
+            });
         }
         results.count = result.size();
         results.values = result;
         return results;
     }
 
-    private boolean check(@NonNull String what, @Nullable String where) {
-        if (TextUtils.isEmpty(where))
-            return false;
-        where = where.toLowerCase();
-        what = what.toLowerCase();
-        return where.contains(what);
+    /**
+     * Tracks are keyed by their positions in store.
+     */
+    @Nullable
+    @Override
+    protected int[] getItemKeys(@NonNull List<MusicItem> items) {
+        if (items instanceof Matches) {
+            return ((Matches) items).positions;
+        }
+        int size = items.size();
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = items.get(i).position();
+        }
+        return keys;
+    }
+
+    @Nullable
+    @Override
+    protected int[] findHighlights(@NonNull List<MusicItem> items, int position, @NonNull String query) {
+        if (items instanceof Matches) {
+            Matches matches = (Matches) items;
+            // index already keeps lowercased fields
+            MusicLibrary library = this.library;
+            TrackIndex index = library == null ? null : library.index();
+            if (index != null && library.items() == matches.items) {
+                return index.occurrences(matches.positions[position], query);
+            }
+        }
+        MusicItem item = items.get(position);
+        return TrackMatcher.findOccurrences(query, TrackMatcher.join(item.title(), item.album(), item.artist()));
+    }
+
+    /**
+     * Tracks of library matched by index, kept as positions so refinement can use index too.
+     */
+    private static class Matches extends AbstractList<MusicItem> {
+        private final List<MusicItem> items;
+        private final int[] positions;
+
+        Matches(List<MusicItem> items, int[] positions) {
+            this.items = items;
+            this.positions = positions;
+        }
+
+        @Override
+        public MusicItem get(int location) {
+            return items.get(positions[location]);
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
     }
 }
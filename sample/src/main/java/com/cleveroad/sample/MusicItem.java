@@ -1,72 +1,62 @@
 package com.cleveroad.sample;
 
+import android.content.ContentUris;
 import android.net.Uri;
 import android.os.Parcel;
 import android.os.Parcelable;
 
 /**
- * Music track model.
+ * Music track model. Lightweight accessor of row in {@link TrackStore}, it doesn't copy any fields.
+ * Uris are built from album id and file path only when they are requested.
  */
 class MusicItem implements Parcelable {
-    private String title;
-    private String album;
-    private String artist;
-    private long duration;
-    private Uri albumArtUri;
-    private Uri fileUri;
+    private static final Uri ALBUM_ART_URI = Uri.parse("content://media/external/audio/albumart");
 
-    public MusicItem title(String title) {
-        this.title = title;
-        return this;
-    }
-
-    public MusicItem album(String album) {
-        this.album = album;
-        return this;
-    }
-
-    public MusicItem artist(String artist) {
-        this.artist = artist;
-        return this;
-    }
+    private final TrackStore store;
+    private final int position;
 
-    public MusicItem duration(long duration) {
-        this.duration = duration;
-        return this;
+    public MusicItem(TrackStore store, int position) {
+        this.store = store;
+        this.position = position;
     }
 
-    public MusicItem albumArtUri(Uri albumArtUri) {
-        this.albumArtUri = albumArtUri;
-        return this;
+    /**
+     * @return position of track in its store
+     */
+    public int position() {
+        return position;
     }
 
-    public MusicItem fileUri(Uri fileUri) {
-        this.fileUri = fileUri;
-        return this;
+    /**
+     * @return MediaStore id of track
+     */
+    public long id() {
+        return store.id(position);
     }
 
     public String title() {
-        return title;
+        return store.title(position);
     }
 
     public String album() {
-        return album;
+        return store.album(position);
     }
 
     public String artist() {
-        return artist;
+        return store.artist(position);
     }
 
     public long duration() {
-        return duration;
+        return store.duration(position);
     }
 
     public Uri albumArtUri() {
-        return albumArtUri;
+        return ContentUris.withAppendedId(ALBUM_ART_URI, store.albumId(position));
     }
 
     public Uri fileUri() {
-        return fileUri;
+        String filePath = store.filePath(position);
+        return filePath == null ? null : Uri.parse(filePath);
     }
 
     @Override
@@ -75,37 +65,51 @@ class MusicItem implements Parcelable {
         if (o == null || getClass() != o.getClass()) return false;
 
         MusicItem item = (MusicItem) o;
+        if (store == item.store && position == item.position) return true;
 
-        if (duration != item.duration) return false;
-        if (title != null ? !title.equals(item.title) : item.title != null) return false;
-        if (album != null ? !album.equals(item.album) : item.album != null) return false;
-        if (artist != null ? !artist.equals(item.artist) : item.artist != null) return false;
-        if (albumArtUri != null ? !albumArtUri.equals(item.albumArtUri) : item.albumArtUri != null)
-            return false;
-        return fileUri != null ? fileUri.equals(item.fileUri) : item.fileUri == null;
+        if (id() != item.id()) return false;
+        if (duration() != item.duration()) return false;
+        if (store.albumId(position) != item.store.albumId(item.position)) return false;
+        if (!equals(title(), item.title())) return false;
+        if (!equals(album(), item.album())) return false;
+        if (!equals(artist(), item.artist())) return false;
+        return equals(store.filePath(position), item.store.filePath(item.position));
 
     }
 
+    private static boolean equals(String a, String b) {
+        return a != null ? a.equals(b) : b == null;
+    }
+
     @Override
     public int hashCode() {
-        int result = title != null ? title.hashCode() : 0;
+        String title = title();
+        String album = album();
+        String artist = artist();
+        long duration = duration();
+        long albumId = store.albumId(position);
+        String filePath = store.filePath(position);
+        long id = id();
+        int result = (int) (id ^ (id >>> 32));
+        result = 31 * result + (title != null ? title.hashCode() : 0);
         result = 31 * result + (album != null ? album.hashCode() : 0);
         result = 31 * result + (artist != null ? artist.hashCode() : 0);
         result = 31 * result + (int) (duration ^ (duration >>> 32));
-        result = 31 * result + (albumArtUri != null ? albumArtUri.hashCode() : 0);
-        result = 31 * result + (fileUri != null ? fileUri.hashCode() : 0);
+        result = 31 * result + (int) (albumId ^ (albumId >>> 32));
+        result = 31 * result + (filePath != null ? filePath.hashCode() : 0);
         return result;
     }
 
     @Override
     public String toString() {
         return "MusicItem{" +
-                "title='" + title + '\'' +
-                ", album='" + album + '\'' +
-                ", artist='" + artist + '\'' +
-                ", duration=" + duration +
-                ", albumArtUri=" + albumArtUri +
-                ", fileUri=" + fileUri +
+                "id=" + id() +
+                ", title='" + title() + '\'' +
+                ", album='" + album() + '\'' +
+                ", artist='" + artist() + '\'' +
+                ", duration=" + duration() +
+                ", albumId=" + store.albumId(position) +
+                ", filePath='" + store.filePath(position) + '\'' +
                 '}';
     }
 
@@ -117,24 +121,19 @@ class MusicItem implements Parcelable {
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        dest.writeString(this.title);
-        dest.writeString(this.album);
-        dest.writeString(this.artist);
-        dest.writeLong(this.duration);
-        dest.writeParcelable(this.albumArtUri, 0);
-        dest.writeParcelable(this.fileUri, 0);
-    }
-
-    public MusicItem() {
+        dest.writeLong(id());
+        dest.writeString(title());
+        dest.writeString(album());
+        dest.writeString(artist());
+        dest.writeLong(duration());
+        dest.writeLong(store.albumId(position));
+        dest.writeString(store.filePath(position));
     }
 
     protected MusicItem(Parcel in) {
-        this.title = in.readString();
-        this.album = in.readString();
-        this.artist = in.readString();
-        this.duration = in.readLong();
-        this.albumArtUri = in.readParcelable(Uri.class.getClassLoader());
-        this.fileUri = in.readParcelable(Uri.class.getClassLoader());
+        this(new TrackStore.Builder(1)
+                .add(in.readLong(), in.readString(), in.readString(), in.readString(), in.readLong(), in.readLong(), in.readString())
+                .build(), 0);
     }
 
     public static final Creator<MusicItem> CREATOR = new Creator<MusicItem>() {
@@ -0,0 +1,110 @@
+package com.cleveroad.sample;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Tracks loaded so far. Complete library also has search index built over its tracks.
+ */
+class MusicLibrary {
+
+    private final TrackStore store;
+    private final boolean complete;
+    private final boolean replacement;
+    private final TrackIndex index;
+    private final List<MusicItem> items;
+
+    public MusicLibrary(@NonNull TrackStore store, boolean complete) {
+        this(store, complete, false);
+    }
+
+    /**
+     * @param replacement true if tracks aren't continuation of previously delivered library
+     */
+    public MusicLibrary(@NonNull TrackStore store, boolean complete, boolean replacement) {
+        this.store = store;
+        this.complete = complete;
+        this.replacement = replacement;
+        index = complete ? buildIndex(store) : null;
+        items = itemsOf(store);
+    }
+
+    /**
+     * @return unmodifiable list of tracks of store, items are created on access
+     */
+    public static List<MusicItem> itemsOf(@NonNull TrackStore store) {
+        return new Items(store);
+    }
+
+    private static TrackIndex buildIndex(TrackStore store) {
+        int size = store.size();
+        String[] titles = new String[size];
+        String[] albums = new String[size];
+        String[] artists = new String[size];
+        for (int i = 0; i < size; i++) {
+            titles[i] = store.title(i);
+            albums[i] = store.album(i);
+            artists[i] = store.artist(i);
+        }
+        return new TrackIndex(titles, albums, artists);
+    }
+
+    public TrackStore store() {
+        return store;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * @return unmodifiable list of tracks, items are created on access
+     */
+    public List<MusicItem> items() {
+        return items;
+    }
+
+    /**
+     * @return true if all tracks are loaded
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true if library replaces previously delivered one, so its tracks may differ at any position.
+     * Otherwise library only appends tracks to previous one
+     */
+    public boolean isReplacement() {
+        return replacement;
+    }
+
+    /**
+     * @return index where track positions are positions in {@link #items()} or null if library isn't complete
+     */
+    @Nullable
+    public TrackIndex index() {
+        return index;
+    }
+
+    private static class Items extends AbstractList<MusicItem> {
+        private final TrackStore store;
+
+        Items(TrackStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public MusicItem get(int location) {
+            return new MusicItem(store, location);
+        }
+
+        @Override
+        public int size() {
+            return store.size();
+        }
+    }
+}
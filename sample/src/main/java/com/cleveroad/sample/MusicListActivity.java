@@ -26,12 +26,10 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.Toast;
 
-import java.util.Collection;
-
 import butterknife.Bind;
 import butterknife.ButterKnife;
 
-public class MusicListActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<Collection<MusicItem>>,
+public class MusicListActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<MusicLibrary>,
         SearchView.OnQueryTextListener {
 
     private static final int MUSIC_LOADER_ID = 1;
@@ -45,7 +43,9 @@ public class MusicListActivity extends AppCompatActivity implements LoaderManage
     View emptyView;
 
     private MusicAdapter adapter;
+    private MusicFilter filter;
     private EmptyViewObserver emptyViewObserver;
+    private String currentQuery = "";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,7 +57,7 @@ public class MusicListActivity extends AppCompatActivity implements LoaderManage
         recyclerView.setAdapter(adapter);
         emptyViewObserver = new EmptyViewObserver(emptyView);
         emptyViewObserver.bind(recyclerView);
-        MusicFilter filter = new MusicFilter(ContextCompat.getColor(this, R.color.colorAccent));
+        filter = new MusicFilter(ContextCompat.getColor(this, R.color.colorAccent));
         adapter.withFilter(filter);
         ItemClickSupport.addTo(recyclerView)
                 .setOnItemClickListener(new ItemClickSupport.OnItemClickListener() {
@@ -65,8 +65,13 @@ public class MusicListActivity extends AppCompatActivity implements LoaderManage
                     public void onItemClick(RecyclerView parent, View view, int position, long id) {
                         MusicItem item = adapter.getItem(position);
                         Intent intent = new Intent(MusicListActivity.this, MainActivity.class);
-                        intent.putExtra(MainActivity.EXTRA_FILE_URIS, adapter.getSnapshot().toArray(new MusicItem[adapter.getNonFilteredCount()]));
+                        TrackStore store = adapter.getStore();
+                        if (store != null) {
+                            intent.putExtra(MainActivity.EXTRA_QUEUE_HANDLE, PlayQueueRegistry.register(store));
+                        }
                         intent.putExtra(MainActivity.EXTRA_SELECT_TRACK, item);
+                        intent.putExtra(MainActivity.EXTRA_SELECT_POSITION, item.position());
+                        adapter.setNowPlaying(item.id());
                         startActivity(intent);
                     }
                 });
@@ -159,22 +164,40 @@ public class MusicListActivity extends AppCompatActivity implements LoaderManage
     }
 
     @Override
-    public Loader<Collection<MusicItem>> onCreateLoader(int id, Bundle args) {
+    public Loader<MusicLibrary> onCreateLoader(int id, Bundle args) {
         if (id == MUSIC_LOADER_ID)
             return new MusicLoader(this);
         return null;
     }
 
     @Override
-    public void onLoadFinished(Loader<Collection<MusicItem>> loader, Collection<MusicItem> data) {
-        adapter.addAll(data);
-        adapter.notifyItemRangeInserted(0, data.size());
+    public void onLoadFinished(Loader<MusicLibrary> loader, MusicLibrary data) {
+        int oldSize = adapter.getNonFilteredCount();
+        adapter.setLibrary(data);
+        filter.setLibrary(data);
+        if (data.isReplacement() || data.size() < oldSize) {
+            // loading was restarted or cached tracks were refreshed, so any row could change
+            adapter.notifyDataSetChanged();
+            if (adapter.isFiltered()) {
+                filter.filterLatest(currentQuery);
+            }
+            return;
+        }
+        if (adapter.isFiltered()) {
+            // positions of filtered list differ, so new matches are published by filter as list diff
+            filter.onItemsAppended();
+            filter.filterLatest(currentQuery);
+            return;
+        }
+        // pages contain all tracks loaded so far, only new ones are inserted
+        adapter.notifyItemRangeInserted(oldSize, data.size() - oldSize);
     }
 
     @Override
-    public void onLoaderReset(Loader<Collection<MusicItem>> loader) {
+    public void onLoaderReset(Loader<MusicLibrary> loader) {
         int size = adapter.getItemCount();
-        adapter.clear();
+        filter.setLibrary(null);
+        adapter.setLibrary(null);
         adapter.notifyItemRangeRemoved(0, size);
     }
 
@@ -185,7 +208,8 @@ public class MusicListActivity extends AppCompatActivity implements LoaderManage
 
     @Override
     public boolean onQueryTextChange(String newText) {
-        adapter.getFilter().filter(newText);
+        currentQuery = newText;
+        adapter.getFilter().filterLatest(newText);
         return true;
     }
 
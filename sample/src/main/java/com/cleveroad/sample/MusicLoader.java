@@ -1,30 +1,133 @@
 package com.cleveroad.sample;
 
-import android.content.ContentUris;
 import android.content.Context;
 import android.database.Cursor;
-import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
+import android.util.Log;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Loader for list of tracks.
+ * Loader for list of tracks. Tracks are delivered in pages while cursor is read: first page is small,
+ * so first screen is shown immediately, next pages grow twice. Each page is {@link MusicLibrary}
+ * with all tracks read so far. Search index is built only for the last page, here, so it isn't built on main thread.<br/><br/>
+ * Loaded tracks are cached in file. Cached tracks are delivered first, then MediaStore is queried again
+ * only if its {@link TrackStoreCache.Stamp} changed.
  */
-class MusicLoader extends BaseAsyncTaskLoader<Collection<MusicItem>> {
+class MusicLoader extends BaseAsyncTaskLoader<MusicLibrary> {
 
-    private final Uri albumArtUri = Uri.parse("content://media/external/audio/albumart");
+    private static final String TAG = "MusicLoader";
+    static final String CACHE_FILE_NAME = "tracks.bin";
+    private static final int FIRST_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 2000;
+    private static final String SELECTION = MediaStore.Audio.Media.IS_MUSIC + "=1";
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final TrackStoreCache cache;
+    /**
+     * True while cached tracks are shown, but MediaStore isn't checked yet.
+     */
+    private volatile boolean refreshPending;
+    /**
+     * Incremented when load starts or is cancelled, so pages of outdated load are not delivered.
+     */
+    private final AtomicInteger loadGeneration = new AtomicInteger();
 
     public MusicLoader(Context context) {
         super(context);
+        cache = new TrackStoreCache(new File(context.getCacheDir(), CACHE_FILE_NAME));
+    }
+
+    @Override
+    protected void onStartLoading() {
+        super.onStartLoading();
+        if (mData != null && (!mData.isComplete() || refreshPending)) {
+            // previous load was stopped before the last page or before cache was checked
+            forceLoad();
+        }
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        loadGeneration.incrementAndGet();
+        super.cancelLoadInBackground();
     }
 
     @Override
-    public Collection<MusicItem> loadInBackground() {
+    public MusicLibrary loadInBackground() {
+        int generation = loadGeneration.incrementAndGet();
+        TrackStoreCache.Entry cached = cache.read();
+        MusicLibrary cachedLibrary = null;
+        if (cached != null) {
+            // loader could be restarted while older tracks are shown
+            cachedLibrary = new MusicLibrary(cached.store(), true, true);
+            refreshPending = true;
+            deliverPage(generation, cachedLibrary);
+        }
+        TrackStoreCache.Stamp stamp = queryStamp();
+        if (cachedLibrary != null && (stamp == null || cached.stamp().equals(stamp))) {
+            refreshPending = false;
+            return cachedLibrary;
+        }
+        // sorted tracks are queried again, so they replace cached ones instead of extending them
+        MusicLibrary library = queryLibrary(generation, cachedLibrary != null);
+        if (library == null) {
+            return null;
+        }
+        refreshPending = false;
+        if (stamp != null) {
+            try {
+                cache.write(stamp, library.store());
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to cache tracks", e);
+            }
+        }
+        return library;
+    }
+
+    /**
+     * Query number of tracks, the latest modification date and sum of ids. It's much faster than query of tracks,
+     * because it doesn't sort anything.
+     *
+     * @return stamp or null if MediaStore is unavailable
+     */
+    private TrackStoreCache.Stamp queryStamp() {
+        Cursor cursor = getContext().getContentResolver().query(
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                new String[]{MediaStore.Audio.Media._ID, MediaStore.Audio.Media.DATE_MODIFIED},
+                SELECTION,
+                null,
+                null
+        );
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            long maxDateModified = 0;
+            long idsSum = 0;
+            while (cursor.moveToNext()) {
+                idsSum += cursor.getLong(0);
+                maxDateModified = Math.max(maxDateModified, cursor.getLong(1));
+            }
+            return new TrackStoreCache.Stamp(cursor.getCount(), maxDateModified, idsSum);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Query all tracks.
+     *
+     * @param refresh true if cached tracks are shown, then pages aren't delivered and library replaces cached one
+     * @return complete library or null if load was cancelled
+     */
+    private MusicLibrary queryLibrary(int generation, boolean refresh) {
         String[] projection = new String[]{
+                MediaStore.Audio.Media._ID,
                 MediaStore.Audio.Media.TITLE,
                 MediaStore.Audio.Media.ALBUM,
                 MediaStore.Audio.Media.ALBUM_ID,
@@ -35,39 +138,66 @@ class MusicLoader extends BaseAsyncTaskLoader<Collection<MusicItem>> {
         Cursor cursor = getContext().getContentResolver().query(
                 MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
                 projection,
-                MediaStore.Audio.Media.IS_MUSIC + "=1",
+                SELECTION,
                 null,
                 "LOWER(" + MediaStore.Audio.Media.ARTIST + ") ASC, " +
                         "LOWER(" + MediaStore.Audio.Media.ALBUM + ") ASC, " +
                         "LOWER(" + MediaStore.Audio.Media.TITLE + ") ASC"
         );
         if (cursor == null) {
-            return Collections.emptyList();
+            return new MusicLibrary(new TrackStore.Builder(0).build(), true, refresh);
         }
-        List<MusicItem> items = new ArrayList<>();
+        // store arrays are allocated for all rows, so delivered pages can be read while next rows are added
+        int rowsCount = cursor.getCount();
+        TrackStore.Builder store = new TrackStore.Builder(rowsCount);
         try {
             if (cursor.moveToFirst()) {
+                int id = cursor.getColumnIndex(MediaStore.Audio.Media._ID);
                 int title = cursor.getColumnIndex(MediaStore.Audio.Media.TITLE);
                 int album = cursor.getColumnIndex(MediaStore.Audio.Media.ALBUM);
                 int artist = cursor.getColumnIndex(MediaStore.Audio.Media.ARTIST);
                 int duration = cursor.getColumnIndex(MediaStore.Audio.Media.DURATION);
                 int albumId = cursor.getColumnIndex(MediaStore.Audio.Media.ALBUM_ID);
                 int data = cursor.getColumnIndex(MediaStore.Audio.Media.DATA);
+                int pageEnd = FIRST_PAGE_SIZE;
+                int pageSize = FIRST_PAGE_SIZE;
                 do {
-                    MusicItem item = new MusicItem()
-                            .title(cursor.getString(title))
-                            .album(cursor.getString(album))
-                            .artist(cursor.getString(artist))
-                            .duration(cursor.getLong(duration))
-                            .albumArtUri(ContentUris.withAppendedId(albumArtUri, cursor.getLong(albumId)))
-                            .fileUri(Uri.parse(cursor.getString(data)))
-                            ;
-                    items.add(item);
-                } while (cursor.moveToNext());
+                    store.add(
+                            cursor.getLong(id),
+                            cursor.getString(title),
+                            cursor.getString(album),
+                            cursor.getString(artist),
+                            cursor.getLong(duration),
+                            cursor.getLong(albumId),
+                            cursor.getString(data)
+                    );
+                    int count = store.size();
+                    if (count == pageEnd && count < rowsCount) {
+                        if (generation != loadGeneration.get()) {
+                            return null;
+                        }
+                        if (!refresh) {
+                            deliverPage(generation, new MusicLibrary(store.build(), false));
+                        }
+                        pageSize = Math.min(MAX_PAGE_SIZE, pageSize * 2);
+                        pageEnd += pageSize;
+                    }
+                } while (store.size() < rowsCount && cursor.moveToNext());
             }
         } finally {
             cursor.close();
         }
-        return items;
+        return new MusicLibrary(store.build(), true, refresh);
+    }
+
+    private void deliverPage(final int generation, final MusicLibrary page) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == loadGeneration.get() && isStarted()) {
+                    deliverResult(page);
+                }
+            }
+        });
     }
 }
@@ -0,0 +1,50 @@
+package com.cleveroad.sample;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process local registry of play queues. Activities pass queue by handle instead of parceling all its tracks.
+ * Handles don't survive process death, so receiver must have a fallback for missing queue.
+ */
+final class PlayQueueRegistry {
+
+    /**
+     * Only the latest queues are kept, older handles are forgotten.
+     */
+    private static final int MAX_QUEUES = 4;
+
+    private static long lastHandle;
+    private static final Map<Long, TrackStore> QUEUES = new LinkedHashMap<Long, TrackStore>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, TrackStore> eldest) {
+            return size() > MAX_QUEUES;
+        }
+    };
+
+    private PlayQueueRegistry() {
+        //no instance
+    }
+
+    /**
+     * Register queue. Store is immutable, so it's shared without copying.
+     *
+     * @return handle of queue
+     */
+    static synchronized long register(@NonNull TrackStore store) {
+        lastHandle++;
+        QUEUES.put(lastHandle, store);
+        return lastHandle;
+    }
+
+    /**
+     * @return queue or null if handle is unknown in this process
+     */
+    @Nullable
+    static synchronized TrackStore get(long handle) {
+        return QUEUES.get(handle);
+    }
+}
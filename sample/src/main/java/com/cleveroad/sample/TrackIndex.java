@@ -0,0 +1,249 @@
+package com.cleveroad.sample;
+
+import java.util.Arrays;
+
+/**
+ * Search index over title, album and artist of tracks.<br/><br/>
+ * Fields are lowercased once when index is built. Every trigram of every field is mapped to sorted
+ * posting list of track positions, all lists are stored in one primitive array. Query of 3+ chars
+ * intersects posting lists of its trigrams and verifies only the candidates, shorter queries are
+ * checked against normalized fields of all tracks. Immutable after creation, so can be used from any thread.
+ */
+final class TrackIndex {
+
+    private static final char FIELD_SEPARATOR = TrackMatcher.FIELD_SEPARATOR;
+    private static final int[] EMPTY = new int[0];
+    private static final int INITIAL_GRAMS_CAPACITY = 1024;
+    private static final int INITIAL_GRAMS_PER_TRACK = 16;
+
+    /**
+     * Lowercased fields of every track joined by {@link TrackMatcher#join(String, String, String)}.
+     */
+    private final String[] normalized;
+
+    /**
+     * Open addressing hash table from trigram to its id.
+     */
+    private long[] gramKeys;
+    private int[] gramIds;
+    private int gramsCount;
+
+    /**
+     * Posting list of trigram with id {@code i} is {@code postings[postingOffsets[i]..postingOffsets[i + 1])}.
+     */
+    private final int[] postingOffsets;
+    private final int[] postings;
+
+    TrackIndex(String[] titles, String[] albums, String[] artists) {
+        int count = titles.length;
+        if (albums.length != count || artists.length != count) {
+            throw new IllegalArgumentException("Fields arrays must have the same length");
+        }
+        normalized = new String[count];
+        gramKeys = new long[INITIAL_GRAMS_CAPACITY];
+        gramIds = new int[INITIAL_GRAMS_CAPACITY];
+        Arrays.fill(gramIds, -1);
+
+        // pair is trigram id in high half and track position in low half, so sorted pairs are posting lists
+        long[] pairs = new long[Math.max(1, count * INITIAL_GRAMS_PER_TRACK)];
+        int pairsCount = 0;
+        for (int i = 0; i < count; i++) {
+            String text = TrackMatcher.join(titles[i], albums[i], artists[i]);
+            normalized[i] = text;
+            for (int j = 0; j + 2 < text.length(); j++) {
+                char c0 = text.charAt(j);
+                char c1 = text.charAt(j + 1);
+                char c2 = text.charAt(j + 2);
+                if (c0 == FIELD_SEPARATOR || c1 == FIELD_SEPARATOR || c2 == FIELD_SEPARATOR) {
+                    continue;
+                }
+                if (pairsCount == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairsCount * 2);
+                }
+                pairs[pairsCount++] = ((long) addGram(key(c0, c1, c2)) << 32) | i;
+            }
+        }
+        Arrays.sort(pairs, 0, pairsCount);
+
+        int[] offsets = new int[gramsCount + 1];
+        int[] lists = new int[pairsCount];
+        int listsCount = 0;
+        long previous = -1;
+        for (int k = 0; k < pairsCount; k++) {
+            long pair = pairs[k];
+            if (pair == previous) {
+                // trigram repeats in the same track
+                continue;
+            }
+            previous = pair;
+            offsets[(int) (pair >>> 32) + 1]++;
+            lists[listsCount++] = (int) pair;
+        }
+        for (int g = 0; g < gramsCount; g++) {
+            offsets[g + 1] += offsets[g];
+        }
+        postingOffsets = offsets;
+        postings = Arrays.copyOf(lists, listsCount);
+    }
+
+    /**
+     * @return number of indexed tracks
+     */
+    int size() {
+        return normalized.length;
+    }
+
+    /**
+     * Find tracks which title, album or artist contains query.
+     *
+     * @param lowerQuery trimmed query in lower case
+     * @return sorted positions of matched tracks
+     */
+    int[] search(String lowerQuery) {
+        int length = lowerQuery.length();
+        if (length < 3) {
+            return scan(lowerQuery);
+        }
+        int gramsInQuery = length - 2;
+        int[] grams = new int[gramsInQuery];
+        int shortest = 0;
+        for (int j = 0; j < gramsInQuery; j++) {
+            int gram = findGram(key(lowerQuery.charAt(j), lowerQuery.charAt(j + 1), lowerQuery.charAt(j + 2)));
+            if (gram < 0) {
+                return EMPTY;
+            }
+            grams[j] = gram;
+            if (listSize(gram) < listSize(grams[shortest])) {
+                shortest = j;
+            }
+        }
+        int shortestGram = grams[shortest];
+        int[] candidates = Arrays.copyOfRange(postings, postingOffsets[shortestGram], postingOffsets[shortestGram + 1]);
+        int candidatesCount = candidates.length;
+        for (int j = 0; j < gramsInQuery && candidatesCount > 0; j++) {
+            if (grams[j] != shortestGram) {
+                candidatesCount = intersect(candidates, candidatesCount, grams[j]);
+            }
+        }
+        // all trigrams are present, but not necessary in the same order and field
+        int resultCount = 0;
+        for (int c = 0; c < candidatesCount; c++) {
+            if (normalized[candidates[c]].contains(lowerQuery)) {
+                candidates[resultCount++] = candidates[c];
+            }
+        }
+        return resultCount == candidates.length ? candidates : Arrays.copyOf(candidates, resultCount);
+    }
+
+    /**
+     * Keep only tracks which title, album or artist contains query.
+     *
+     * @param positions  positions of tracks to check
+     * @param lowerQuery trimmed query in lower case
+     * @return positions of matched tracks in the same order
+     */
+    int[] filter(int[] positions, String lowerQuery) {
+        int[] result = new int[positions.length];
+        int resultCount = 0;
+        for (int position : positions) {
+            if (normalized[position].contains(lowerQuery)) {
+                result[resultCount++] = position;
+            }
+        }
+        return resultCount == result.length ? result : Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * @param position   position of track
+     * @param lowerQuery trimmed query in lower case
+     * @return occurrences of query in fields of track, see {@link TrackMatcher#findOccurrences(String, String)}
+     */
+    int[] occurrences(int position, String lowerQuery) {
+        return TrackMatcher.findOccurrences(lowerQuery, normalized[position]);
+    }
+
+    private int[] scan(String lowerQuery) {
+        int[] result = new int[normalized.length];
+        int resultCount = 0;
+        for (int i = 0; i < normalized.length; i++) {
+            if (normalized[i].contains(lowerQuery)) {
+                result[resultCount++] = i;
+            }
+        }
+        return Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Keep only candidates that are present in posting list of trigram.
+     *
+     * @return number of remaining candidates
+     */
+    private int intersect(int[] candidates, int candidatesCount, int gram) {
+        int from = postingOffsets[gram];
+        int to = postingOffsets[gram + 1];
+        int resultCount = 0;
+        for (int c = 0; c < candidatesCount && from < to; c++) {
+            int index = Arrays.binarySearch(postings, from, to, candidates[c]);
+            if (index >= 0) {
+                candidates[resultCount++] = candidates[c];
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+        }
+        return resultCount;
+    }
+
+    private int listSize(int gram) {
+        return postingOffsets[gram + 1] - postingOffsets[gram];
+    }
+
+    private int addGram(long key) {
+        int slot = findSlot(gramKeys, gramIds, key);
+        if (gramIds[slot] >= 0) {
+            return gramIds[slot];
+        }
+        gramKeys[slot] = key;
+        gramIds[slot] = gramsCount;
+        gramsCount++;
+        if (gramsCount * 2 > gramKeys.length) {
+            rehash();
+        }
+        return gramsCount - 1;
+    }
+
+    private int findGram(long key) {
+        return gramIds[findSlot(gramKeys, gramIds, key)];
+    }
+
+    private void rehash() {
+        long[] keys = new long[gramKeys.length * 2];
+        int[] ids = new int[gramIds.length * 2];
+        Arrays.fill(ids, -1);
+        for (int i = 0; i < gramKeys.length; i++) {
+            if (gramIds[i] >= 0) {
+                int slot = findSlot(keys, ids, gramKeys[i]);
+                keys[slot] = gramKeys[i];
+                ids[slot] = gramIds[i];
+            }
+        }
+        gramKeys = keys;
+        gramIds = ids;
+    }
+
+    /**
+     * @return slot with given key or empty slot where it should be placed
+     */
+    private static int findSlot(long[] keys, int[] ids, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 29) ^ (key >>> 17)) * 0x9E3779B9 & mask;
+        while (ids[slot] >= 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long key(char c0, char c1, char c2) {
+        return ((long) c0 << 32) | ((long) c1 << 16) | c2;
+    }
+}
@@ -0,0 +1,85 @@
+package com.cleveroad.sample;
+
+import java.util.Arrays;
+
+/**
+ * Case insensitive matching of search query against track fields.
+ */
+final class TrackMatcher {
+
+    static final int FIELD_TITLE = 0;
+    static final int FIELD_ALBUM = 1;
+    static final int FIELD_ARTIST = 2;
+
+    /**
+     * Separator of fields in {@link #join(String, String, String)}, it never occurs in queries.
+     */
+    static final char FIELD_SEPARATOR = '\u0000';
+
+    private static final int[] EMPTY = new int[0];
+
+    private TrackMatcher() {
+        //no instance
+    }
+
+    /**
+     * @param lowerQuery trimmed query in lower case
+     * @return true if title, album or artist contains query
+     */
+    static boolean matches(String lowerQuery, String title, String album, String artist) {
+        return check(lowerQuery, title)
+                || check(lowerQuery, album)
+                || check(lowerQuery, artist);
+    }
+
+    /**
+     * @return lowercased title, album and artist joined with {@link #FIELD_SEPARATOR}
+     */
+    static String join(String title, String album, String artist) {
+        return normalize(title) + FIELD_SEPARATOR + normalize(album) + FIELD_SEPARATOR + normalize(artist);
+    }
+
+    /**
+     * Find every occurrence of query in fields.
+     *
+     * @param lowerQuery   trimmed query in lower case
+     * @param joinedFields fields joined by {@link #join(String, String, String)}
+     * @return pairs of field ({@link #FIELD_TITLE}, {@link #FIELD_ALBUM} or {@link #FIELD_ARTIST})
+     * and start of occurrence in this field
+     */
+    static int[] findOccurrences(String lowerQuery, String joinedFields) {
+        int index = joinedFields.indexOf(lowerQuery);
+        if (lowerQuery.isEmpty() || index == -1) {
+            return EMPTY;
+        }
+        int[] occurrences = new int[4];
+        int count = 0;
+        int field = 0;
+        int fieldStart = 0;
+        int separator = joinedFields.indexOf(FIELD_SEPARATOR);
+        while (index != -1) {
+            while (separator != -1 && separator < index) {
+                field++;
+                fieldStart = separator + 1;
+                separator = joinedFields.indexOf(FIELD_SEPARATOR, fieldStart);
+            }
+            if (count == occurrences.length) {
+                occurrences = Arrays.copyOf(occurrences, count * 2);
+            }
+            occurrences[count++] = field;
+            occurrences[count++] = index - fieldStart;
+            index = joinedFields.indexOf(lowerQuery, index + 1);
+        }
+        return count == occurrences.length ? occurrences : Arrays.copyOf(occurrences, count);
+    }
+
+    private static String normalize(String field) {
+        return field == null ? "" : field.toLowerCase();
+    }
+
+    private static boolean check(String lowerQuery, String where) {
+        if (where == null || where.isEmpty())
+            return false;
+        return where.toLowerCase().contains(lowerQuery);
+    }
+}
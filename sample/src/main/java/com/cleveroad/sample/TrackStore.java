@@ -0,0 +1,323 @@
+package com.cleveroad.sample;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Columnar storage of tracks.<br/><br/>
+ * Every field is kept in its own array. Albums and artists repeat a lot, so they are stored once
+ * in tables of unique strings and rows keep only indexes in these tables.
+ * Store is immutable, it's a view of rows added to {@link Builder} before {@link Builder#build()}.
+ */
+final class TrackStore {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int size;
+    private final long[] ids;
+    private final String[] titles;
+    private final int[] albums;
+    private final int[] artists;
+    private final String[] albumsTable;
+    private final String[] artistsTable;
+    private final long[] durations;
+    private final long[] albumIds;
+    private final String[] filePaths;
+
+    private TrackStore(Builder builder) {
+        size = builder.size;
+        ids = builder.ids;
+        titles = builder.titles;
+        albums = builder.albums;
+        artists = builder.artists;
+        albumsTable = builder.albumsTable.table;
+        artistsTable = builder.artistsTable.table;
+        durations = builder.durations;
+        albumIds = builder.albumIds;
+        filePaths = builder.filePaths;
+    }
+
+    private TrackStore(int size, long[] ids, String[] titles, int[] albums, int[] artists, String[] albumsTable, String[] artistsTable,
+                       long[] durations, long[] albumIds, String[] filePaths) {
+        this.size = size;
+        this.ids = ids;
+        this.titles = titles;
+        this.albums = albums;
+        this.artists = artists;
+        this.albumsTable = albumsTable;
+        this.artistsTable = artistsTable;
+        this.durations = durations;
+        this.albumIds = albumIds;
+        this.filePaths = filePaths;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return MediaStore id of track
+     */
+    long id(int position) {
+        return ids[checkPosition(position)];
+    }
+
+    String title(int position) {
+        return titles[checkPosition(position)];
+    }
+
+    String album(int position) {
+        return albumsTable[albums[checkPosition(position)]];
+    }
+
+    String artist(int position) {
+        return artistsTable[artists[checkPosition(position)]];
+    }
+
+    long duration(int position) {
+        return durations[checkPosition(position)];
+    }
+
+    long albumId(int position) {
+        return albumIds[checkPosition(position)];
+    }
+
+    String filePath(int position) {
+        return filePaths[checkPosition(position)];
+    }
+
+    /**
+     * Write store column by column. Tables of albums and artists are written as is, so reading doesn't intern strings.
+     */
+    void writeTo(DataOutput output) throws IOException {
+        int albumsCount = count(albums);
+        int artistsCount = count(artists);
+        output.writeInt(size);
+        output.writeInt(albumsCount);
+        output.writeInt(artistsCount);
+        for (int i = 0; i < albumsCount; i++) {
+            writeString(output, albumsTable[i]);
+        }
+        for (int i = 0; i < artistsCount; i++) {
+            writeString(output, artistsTable[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeLong(ids[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            writeString(output, titles[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeInt(albums[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeInt(artists[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeLong(durations[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeLong(albumIds[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            writeString(output, filePaths[i]);
+        }
+    }
+
+    /**
+     * Read store written by {@link #writeTo(DataOutput)}.
+     *
+     * @throws IOException if data is truncated or inconsistent
+     */
+    static TrackStore readFrom(ByteBuffer buffer) throws IOException {
+        try {
+            int size = buffer.getInt();
+            int albumsCount = buffer.getInt();
+            int artistsCount = buffer.getInt();
+            // every row takes at least 40 bytes and every table entry at least 4, checked before allocating arrays
+            if (size < 0 || albumsCount < 0 || artistsCount < 0
+                    || size * 40L + (albumsCount + artistsCount) * 4L > buffer.remaining()) {
+                throw new IOException("Corrupted store");
+            }
+            byte[] bytes = new byte[64];
+            String[] albumsTable = new String[albumsCount];
+            for (int i = 0; i < albumsCount; i++) {
+                bytes = readString(buffer, bytes, albumsTable, i);
+            }
+            String[] artistsTable = new String[artistsCount];
+            for (int i = 0; i < artistsCount; i++) {
+                bytes = readString(buffer, bytes, artistsTable, i);
+            }
+            long[] ids = new long[size];
+            buffer.asLongBuffer().get(ids);
+            buffer.position(buffer.position() + size * 8);
+            String[] titles = new String[size];
+            for (int i = 0; i < size; i++) {
+                bytes = readString(buffer, bytes, titles, i);
+            }
+            int[] albums = new int[size];
+            buffer.asIntBuffer().get(albums);
+            buffer.position(buffer.position() + size * 4);
+            int[] artists = new int[size];
+            buffer.asIntBuffer().get(artists);
+            buffer.position(buffer.position() + size * 4);
+            long[] durations = new long[size];
+            buffer.asLongBuffer().get(durations);
+            buffer.position(buffer.position() + size * 8);
+            long[] albumIds = new long[size];
+            buffer.asLongBuffer().get(albumIds);
+            buffer.position(buffer.position() + size * 8);
+            String[] filePaths = new String[size];
+            for (int i = 0; i < size; i++) {
+                bytes = readString(buffer, bytes, filePaths, i);
+            }
+            for (int i = 0; i < size; i++) {
+                if (albums[i] < 0 || albums[i] >= albumsCount || artists[i] < 0 || artists[i] >= artistsCount) {
+                    throw new IOException("Corrupted store");
+                }
+            }
+            return new TrackStore(size, ids, titles, albums, artists, albumsTable, artistsTable, durations, albumIds, filePaths);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated store", e);
+        }
+    }
+
+    /**
+     * @return number of table entries used by first {@link #size} rows
+     */
+    private int count(int[] indexes) {
+        int max = -1;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, indexes[i]);
+        }
+        return max + 1;
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read string into {@code target[index]}.
+     *
+     * @return buffer for next strings, grown if it was too small
+     */
+    private static byte[] readString(ByteBuffer buffer, byte[] bytes, String[] target, int index) throws IOException {
+        int length = buffer.getInt();
+        if (length < -1) {
+            throw new IOException("Corrupted store");
+        }
+        if (length == -1) {
+            target[index] = null;
+            return bytes;
+        }
+        if (length > bytes.length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        buffer.get(bytes, 0, length);
+        target[index] = new String(bytes, 0, length, UTF_8);
+        return bytes;
+    }
+
+    private int checkPosition(int position) {
+        // arrays are shared with builder and can be longer than this view
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+        }
+        return position;
+    }
+
+    /**
+     * Appends rows to store. Arrays of rows are allocated once for expected number of rows,
+     * so stores built earlier stay valid while next rows are added.
+     */
+    static final class Builder {
+        private int size;
+        private long[] ids;
+        private String[] titles;
+        private int[] albums;
+        private int[] artists;
+        private long[] durations;
+        private long[] albumIds;
+        private String[] filePaths;
+        private final StringTable albumsTable = new StringTable();
+        private final StringTable artistsTable = new StringTable();
+
+        Builder(int capacity) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Capacity cannot be negative");
+            }
+            ids = new long[capacity];
+            titles = new String[capacity];
+            albums = new int[capacity];
+            artists = new int[capacity];
+            durations = new long[capacity];
+            albumIds = new long[capacity];
+            filePaths = new String[capacity];
+        }
+
+        Builder add(long id, String title, String album, String artist, long duration, long albumId, String filePath) {
+            if (size == titles.length) {
+                // rows above capacity: grow arrays, stores built earlier keep old ones
+                int capacity = Math.max(16, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+                albums = Arrays.copyOf(albums, capacity);
+                artists = Arrays.copyOf(artists, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                albumIds = Arrays.copyOf(albumIds, capacity);
+                filePaths = Arrays.copyOf(filePaths, capacity);
+            }
+            ids[size] = id;
+            titles[size] = title;
+            albums[size] = albumsTable.intern(album);
+            artists[size] = artistsTable.intern(artist);
+            durations[size] = duration;
+            albumIds[size] = albumId;
+            filePaths[size] = filePath;
+            size++;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        TrackStore build() {
+            return new TrackStore(this);
+        }
+    }
+
+    /**
+     * Table of unique strings. Table array is copied when it grows, so old arrays are never changed below their size.
+     */
+    private static final class StringTable {
+        private final HashMap<String, Integer> ids = new HashMap<>();
+        private String[] table = new String[16];
+
+        int intern(String value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            int newId = ids.size();
+            if (newId == table.length) {
+                table = Arrays.copyOf(table, newId * 2);
+            }
+            table[newId] = value;
+            ids.put(value, newId);
+            return newId;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.cleveroad.sample;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary file with {@link TrackStore} and stamp of MediaStore state it was loaded from.
+ * File is memory mapped on read, so it's decoded without copying it into heap first.
+ */
+class TrackStoreCache {
+
+    private static final int MAGIC = 0x50575453;
+    private static final int VERSION = 2;
+
+    private final File file;
+
+    public TrackStoreCache(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Read cached store.
+     *
+     * @return cached store or null if file doesn't exist or can't be read
+     */
+    @Nullable
+    public Entry read() {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            RandomAccessFile input = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = input.getChannel();
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.remaining() < 28 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                    return null;
+                }
+                Stamp stamp = new Stamp(buffer.getInt(), buffer.getLong(), buffer.getLong());
+                return new Entry(stamp, TrackStore.readFrom(buffer));
+            } finally {
+                input.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            // broken cache is just reloaded from MediaStore
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Write store into temporary file and replace cache with it, so readers never see partially written cache.
+     */
+    public void write(@NonNull Stamp stamp, @NonNull TrackStore store) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(stamp.count);
+            output.writeLong(stamp.maxDateModified);
+            output.writeLong(stamp.idsSum);
+            store.writeTo(output);
+        } finally {
+            output.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    /**
+     * State of MediaStore that changes when tracks are added, removed or modified.
+     */
+    static class Stamp {
+        private final int count;
+        private final long maxDateModified;
+        private final long idsSum;
+
+        public Stamp(int count, long maxDateModified, long idsSum) {
+            this.count = count;
+            this.maxDateModified = maxDateModified;
+            this.idsSum = idsSum;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Stamp stamp = (Stamp) o;
+            return count == stamp.count && maxDateModified == stamp.maxDateModified && idsSum == stamp.idsSum;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = count;
+            result = 31 * result + (int) (maxDateModified ^ (maxDateModified >>> 32));
+            result = 31 * result + (int) (idsSum ^ (idsSum >>> 32));
+            return result;
+        }
+    }
+
+    static class Entry {
+        private final Stamp stamp;
+        private final TrackStore store;
+
+        Entry(Stamp stamp, TrackStore store) {
+            this.stamp = stamp;
+            this.store = store;
+        }
+
+        public Stamp stamp() {
+            return stamp;
+        }
+
+        public TrackStore store() {
+            return store;
+        }
+    }
+}